@@ -1,6 +1,16 @@
 package com.example.demo;
 
+import java.util.ArrayList;
+import java.util.List;
+
 import com.example.entity.EntityManager;
+import com.example.physics.PhysicsBodyProfile;
+import com.example.physics.SleepAwareRigidBodyControl;
+import com.example.rendering.ImpostorRenderer;
+import com.example.rendering.InstancedRenderer;
+import com.example.rendering.MaterialCache;
+import com.example.rendering.MeshCache;
+import com.example.rendering.ScreenSpaceLodControl;
 import com.example.ui.UIManager;
 import com.jme3.app.SimpleApplication;
 import com.jme3.bullet.BulletAppState;
@@ -21,6 +31,7 @@ import com.jme3.post.FilterPostProcessor;
 import com.jme3.post.filters.BloomFilter;
 import com.jme3.post.filters.FXAAFilter;
 import com.jme3.scene.Geometry;
+import com.jme3.scene.Spatial;
 import com.jme3.scene.shape.Box;
 import com.jme3.shadow.DirectionalLightShadowFilter;
 import com.jme3.shadow.EdgeFilteringMode;
@@ -34,7 +45,16 @@ public class CleanPhysicsDemo extends SimpleApplication implements ActionListene
     private BulletAppState bulletAppState;
     private UIManager uiManager;
     private EntityManager entityManager;
+    private MeshCache meshCache;
+    private MaterialCache materialCache;
+    private InstancedRenderer instancedRenderer;
+    private ImpostorRenderer impostorRenderer;
     private int objectCounter = 0;
+
+    // Spawn colors, brightened so the PBR shading reads clearly
+    private static final ColorRGBA RED_BASE_COLOR = ColorRGBA.Red.mult(1.5f);
+    private static final ColorRGBA BLUE_BASE_COLOR = ColorRGBA.Blue.mult(1.5f);
+    private static final ColorRGBA GREEN_BASE_COLOR = ColorRGBA.Green.mult(1.5f);
     private float cameraSpeed = 10f;
 
     // Lighting
@@ -73,6 +93,19 @@ public class CleanPhysicsDemo extends SimpleApplication implements ActionListene
         bulletAppState = new BulletAppState();
         stateManager.attach(bulletAppState);
 
+        // Shared meshes and materials, so every spawn of a shape reuses one of each
+        meshCache = new MeshCache();
+        meshCache.setLodReductions(MeshCache.DEFAULT_LOD_REDUCTIONS);
+        materialCache = new MaterialCache(assetManager);
+
+        // Spawned shapes are drawn instanced, one draw call per shape type
+        instancedRenderer = new InstancedRenderer("Spawned Objects");
+        stateManager.attach(instancedRenderer);
+
+        // Far away spawned shapes collapse into one draw of flat impostors
+        impostorRenderer = new ImpostorRenderer();
+        stateManager.attach(impostorRenderer);
+
         // Initialize Entity Manager
         entityManager = new EntityManager();
         stateManager.attach(entityManager);
@@ -166,7 +199,7 @@ public class CleanPhysicsDemo extends SimpleApplication implements ActionListene
         groundGeom.setLocalTranslation(0, -1f, 0);
 
         // Add physics
-        RigidBodyControl groundPhysics = new RigidBodyControl(0f);
+        RigidBodyControl groundPhysics = new SleepAwareRigidBodyControl(0f);
         groundGeom.addControl(groundPhysics);
         bulletAppState.getPhysicsSpace().add(groundPhysics);
 
@@ -225,24 +258,21 @@ public class CleanPhysicsDemo extends SimpleApplication implements ActionListene
     private void spawnSphere(Vector3f position) {
         String id = "sphere_" + (++objectCounter);
 
-        // Create sphere geometry manually to avoid GeometryFactory's material
-        com.jme3.scene.shape.Sphere sphereMesh = new com.jme3.scene.shape.Sphere(32, 32, 0.6f);
-        Geometry sphere = new Geometry(id, sphereMesh);
-
-        // Create bright red material
-        Material mat = new Material(assetManager, "Common/MatDefs/Light/PBRLighting.j3md");
-        mat.setColor("BaseColor", ColorRGBA.Red.mult(1.5f));
-        mat.setFloat("Metallic", 0.3f);
-        mat.setFloat("Roughness", 0.2f);
-        sphere.setMaterial(mat);
+        // Shared sphere mesh and bright red PBR material
+        Geometry sphere = new Geometry(id, meshCache.acquireSphere(32, 32, 0.6f));
+        sphere.setMaterial(materialCache.acquirePbr(RED_BASE_COLOR, 0.3f, 0.2f, true));
+        sphere.addControl(new ScreenSpaceLodControl(cam));
 
         sphere.setLocalTranslation(position);
-        rootNode.attachChild(sphere);
+        instancedRenderer.add(sphere);
+        impostorRenderer.add(sphere);
 
         // Add physics
         SphereCollisionShape sphereShape = new SphereCollisionShape(0.6f);
-        RigidBodyControl spherePhysics = new RigidBodyControl(sphereShape, 1f);
+        RigidBodyControl spherePhysics = new SleepAwareRigidBodyControl(sphereShape, 1f);
         sphere.addControl(spherePhysics);
+        // CCD sized to the shape, so fast spheres do not tunnel through the ground
+        PhysicsBodyProfile.DEFAULT.applyTo(spherePhysics);
         bulletAppState.getPhysicsSpace().add(spherePhysics);
 
         System.out.println("Spawned METALLIC RED SPHERE at: " + position);
@@ -252,24 +282,19 @@ public class CleanPhysicsDemo extends SimpleApplication implements ActionListene
         String id = "box_" + (++objectCounter);
         Vector3f halfExtents = new Vector3f(0.6f, 0.6f, 0.6f);
 
-        // Create box geometry manually to avoid GeometryFactory's material
-        com.jme3.scene.shape.Box boxMesh = new com.jme3.scene.shape.Box(halfExtents.x, halfExtents.y, halfExtents.z);
-        Geometry box = new Geometry(id, boxMesh);
-
-        // Create bright blue material
-        Material mat = new Material(assetManager, "Common/MatDefs/Light/PBRLighting.j3md");
-        mat.setColor("BaseColor", ColorRGBA.Blue.mult(1.5f));
-        mat.setFloat("Metallic", 0.3f);
-        mat.setFloat("Roughness", 0.2f);
-        box.setMaterial(mat);
+        // Shared box mesh and bright blue PBR material
+        Geometry box = new Geometry(id, meshCache.acquireBox(halfExtents.x, halfExtents.y, halfExtents.z));
+        box.setMaterial(materialCache.acquirePbr(BLUE_BASE_COLOR, 0.3f, 0.2f, true));
 
         box.setLocalTranslation(position);
-        rootNode.attachChild(box);
+        instancedRenderer.add(box);
+        impostorRenderer.add(box);
 
         // Add physics
         BoxCollisionShape boxShape = new BoxCollisionShape(halfExtents);
-        RigidBodyControl boxPhysics = new RigidBodyControl(boxShape, 2f);
+        RigidBodyControl boxPhysics = new SleepAwareRigidBodyControl(boxShape, 2f);
         box.addControl(boxPhysics);
+        PhysicsBodyProfile.DEFAULT.applyTo(boxPhysics);
         bulletAppState.getPhysicsSpace().add(boxPhysics);
 
         System.out.println("Spawned METALLIC BLUE BOX at: " + position);
@@ -278,25 +303,21 @@ public class CleanPhysicsDemo extends SimpleApplication implements ActionListene
     private void spawnCapsule(Vector3f position) {
         String id = "capsule_" + (++objectCounter);
 
-        // Create capsule geometry manually to avoid GeometryFactory's material
-        com.jme3.scene.shape.Cylinder capsuleMesh = new com.jme3.scene.shape.Cylinder(16, 32, 0.4f, 1.2f, true);
-        Geometry capsule = new Geometry(id, capsuleMesh);
-
-        // Create bright green material
-        Material mat = new Material(assetManager, "Common/MatDefs/Light/PBRLighting.j3md");
-        mat.setColor("BaseColor", ColorRGBA.Green.mult(1.5f));
-        mat.setFloat("Metallic", 0.3f);
-        mat.setFloat("Roughness", 0.2f);
-        capsule.setMaterial(mat);
+        // Shared cylinder mesh and bright green PBR material
+        Geometry capsule = new Geometry(id, meshCache.acquireCylinder(16, 32, 0.4f, 1.2f));
+        capsule.setMaterial(materialCache.acquirePbr(GREEN_BASE_COLOR, 0.3f, 0.2f, true));
+        capsule.addControl(new ScreenSpaceLodControl(cam));
 
         capsule.setLocalTranslation(position);
-        rootNode.attachChild(capsule);
+        instancedRenderer.add(capsule);
+        impostorRenderer.add(capsule);
 
         // Add physics - use box collision that exactly matches cylinder dimensions
         // Visual cylinder: radius=0.4, height=1.2 -> Box: half-extents(0.4, 0.6, 0.4)
         BoxCollisionShape capsuleShape = new BoxCollisionShape(new Vector3f(0.4f, 0.6f, 0.4f));
-        RigidBodyControl capsulePhysics = new RigidBodyControl(capsuleShape, 1.5f);
+        RigidBodyControl capsulePhysics = new SleepAwareRigidBodyControl(capsuleShape, 1.5f);
         capsule.addControl(capsulePhysics);
+        PhysicsBodyProfile.DEFAULT.applyTo(capsulePhysics);
         bulletAppState.getPhysicsSpace().add(capsulePhysics);
 
         System.out.println("Spawned METALLIC GREEN CYLINDER at: " + position);
@@ -321,11 +342,28 @@ public class CleanPhysicsDemo extends SimpleApplication implements ActionListene
 
     private void resetScene() {
         // Remove all spawned objects (keep only ground)
-        rootNode.getChildren().removeIf(spatial
-                -> spatial.getName() != null
-                && (spatial.getName().startsWith("sphere_")
-                || spatial.getName().startsWith("box_")
-                || spatial.getName().startsWith("capsule_")));
+        // Copy first, removing an instance can also detach its instanced draw
+        instancedRenderer.flush();
+        List<Spatial> spawned = new ArrayList<>(instancedRenderer.getNode().getChildren());
+        for (Spatial spatial : spawned) {
+            String name = spatial.getName();
+            if (name == null || !(name.startsWith("sphere_") || name.startsWith("box_")
+                    || name.startsWith("capsule_"))) {
+                continue;
+            }
+            RigidBodyControl physics = spatial.getControl(RigidBodyControl.class);
+            if (physics != null) {
+                bulletAppState.getPhysicsSpace().remove(physics);
+            }
+            if (spatial instanceof Geometry) {
+                // Hand the shared mesh and material back to the caches
+                Geometry geometry = (Geometry) spatial;
+                impostorRenderer.remove(geometry);
+                instancedRenderer.remove(geometry);
+                meshCache.release(geometry.getMesh());
+                materialCache.release(geometry.getMaterial());
+            }
+        }
 
         objectCounter = 0;
         System.out.println("Scene reset - all spawned objects removed");
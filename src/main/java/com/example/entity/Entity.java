@@ -2,28 +2,55 @@ package com.example.entity;
 
 import com.jme3.math.Vector3f;
 import com.jme3.scene.Spatial;
+import com.jme3.scene.Spatial.CullHint;
 
 /**
- * Base Entity class for all game objects
+ * Base Entity class for all game objects.
+ *
+ * Position, rotation, velocity and the active flag are stored in a
+ * TransformStore; this class is a facade over the entity's slot. An entity
+ * that is not managed keeps its data in a private one-slot store and moves
+ * into the manager's store when added.
+ *
+ * Managed entities copy their position to the spatial at the end of the
+ * manager's update rather than immediately, so updates can run off the
+ * render thread. Entities whose update only touches their own data can
+ * return true from isParallelSafe to be updated on the worker pool.
  */
 public abstract class Entity {
 
     protected String id;
-    protected Vector3f position;
-    protected Vector3f rotation;
     protected Spatial spatial;
-    protected boolean active = true;
+
+    // One-slot store holding the data while unmanaged, kept for reuse
+    private final TransformStore privateStore;
+    private TransformStore store;
+    private int storeIndex;
+
+    // Update scheduling state, see UpdateScheduler
+    private UpdatePriority updatePriority = UpdatePriority.AUTO;
+    float pendingUpdateTime;
+    int updatePhase;
+
+    // Entry in the manager's SpatialHashGrid, or -1
+    int gridEntry = -1;
+
+    // Lifecycle state managed by EntityManager and EntityPool
+    boolean initialized;
+    boolean pendingAdd;
+    boolean pendingRemove;
+    EntityPool<?> pool;
 
     public Entity(String id) {
         this.id = id;
-        this.position = new Vector3f();
-        this.rotation = new Vector3f();
+        this.privateStore = new TransformStore(1);
+        this.store = privateStore;
+        this.storeIndex = store.add(this);
     }
 
     public Entity(String id, Vector3f position) {
-        this.id = id;
-        this.position = position.clone();
-        this.rotation = new Vector3f();
+        this(id);
+        setPosition(position.x, position.y, position.z);
     }
 
     /**
@@ -41,28 +68,175 @@ public abstract class Entity {
      */
     public abstract void cleanup();
 
+    /**
+     * Called instead of initialize() when an entity from an EntityPool is
+     * added again. Reset per-spawn state here. Shows the spatial by default.
+     */
+    protected void onSpawn() {
+        if (spatial != null) {
+            spatial.setCullHint(CullHint.Inherit);
+        }
+    }
+
+    /**
+     * Called instead of cleanup() when an entity is removed and returns to
+     * its EntityPool. Disable anything that should not run while pooled.
+     * Hides the spatial by default, without detaching it.
+     */
+    protected void onDespawn() {
+        if (spatial != null) {
+            spatial.setCullHint(CullHint.Always);
+        }
+        setVelocity(0f, 0f, 0f);
+    }
+
+    /**
+     * Check if update() may run on a worker thread, in parallel with other
+     * entities. Only return true if update() writes nothing but this
+     * entity's own transform and state: no scene graph changes, no physics
+     * space changes, and no adding or removing entities.
+     */
+    public boolean isParallelSafe() {
+        return false;
+    }
+
+    /**
+     * Move this entity's data into another store
+     */
+    void attachTo(TransformStore target) {
+        TransformStore source = store;
+        int sourceIndex = storeIndex;
+        int index = target.add(this);
+        target.copySlot(source, sourceIndex, index);
+        source.remove(sourceIndex);
+        store = target;
+        storeIndex = index;
+    }
+
+    /**
+     * Move this entity's data back into its private store
+     */
+    void detach() {
+        if (store != privateStore) {
+            attachTo(privateStore);
+        }
+    }
+
+    void setStoreIndex(int storeIndex) {
+        this.storeIndex = storeIndex;
+    }
+
+    int getStoreIndex() {
+        return storeIndex;
+    }
+
+    /**
+     * Copy the stored position to the spatial
+     */
+    void syncSpatial() {
+        if (spatial != null) {
+            float[] positions = store.getPositions();
+            int v = storeIndex * TransformStore.STRIDE;
+            spatial.setLocalTranslation(positions[v], positions[v + 1], positions[v + 2]);
+        }
+    }
+
     // Getters and setters
     public String getId() {
         return id;
     }
 
     public Vector3f getPosition() {
-        return position.clone();
+        return getPosition(new Vector3f());
+    }
+
+    /**
+     * Copy the position into a store vector without allocating
+     */
+    public Vector3f getPosition(Vector3f store) {
+        float[] positions = this.store.getPositions();
+        int v = storeIndex * TransformStore.STRIDE;
+        return store.set(positions[v], positions[v + 1], positions[v + 2]);
     }
 
     public void setPosition(Vector3f position) {
-        this.position = position.clone();
-        if (spatial != null) {
-            spatial.setLocalTranslation(position);
+        setPosition(position.x, position.y, position.z);
+    }
+
+    public void setPosition(float x, float y, float z) {
+        float[] positions = store.getPositions();
+        int v = storeIndex * TransformStore.STRIDE;
+        if (positions[v] == x && positions[v + 1] == y && positions[v + 2] == z) {
+            return;
+        }
+        positions[v] = x;
+        positions[v + 1] = y;
+        positions[v + 2] = z;
+        store.markMoved(storeIndex);
+        if (!store.isDeferSpatialSync()) {
+            syncSpatial();
         }
     }
 
     public Vector3f getRotation() {
-        return rotation.clone();
+        return getRotation(new Vector3f());
+    }
+
+    /**
+     * Copy the rotation into a store vector without allocating
+     */
+    public Vector3f getRotation(Vector3f store) {
+        float[] rotations = this.store.getRotations();
+        int v = storeIndex * TransformStore.STRIDE;
+        return store.set(rotations[v], rotations[v + 1], rotations[v + 2]);
     }
 
     public void setRotation(Vector3f rotation) {
-        this.rotation = rotation.clone();
+        setRotation(rotation.x, rotation.y, rotation.z);
+    }
+
+    public void setRotation(float x, float y, float z) {
+        float[] rotations = store.getRotations();
+        int v = storeIndex * TransformStore.STRIDE;
+        if (rotations[v] == x && rotations[v + 1] == y && rotations[v + 2] == z) {
+            return;
+        }
+        rotations[v] = x;
+        rotations[v + 1] = y;
+        rotations[v + 2] = z;
+        store.markDirty(storeIndex, TransformStore.ROTATION);
+    }
+
+    public Vector3f getVelocity() {
+        return getVelocity(new Vector3f());
+    }
+
+    /**
+     * Copy the velocity into a store vector without allocating
+     */
+    public Vector3f getVelocity(Vector3f store) {
+        float[] velocities = this.store.getVelocities();
+        int v = storeIndex * TransformStore.STRIDE;
+        return store.set(velocities[v], velocities[v + 1], velocities[v + 2]);
+    }
+
+    /**
+     * Set the velocity integrated by the MovementSystem
+     */
+    public void setVelocity(Vector3f velocity) {
+        setVelocity(velocity.x, velocity.y, velocity.z);
+    }
+
+    public void setVelocity(float x, float y, float z) {
+        float[] velocities = store.getVelocities();
+        int v = storeIndex * TransformStore.STRIDE;
+        if (velocities[v] == x && velocities[v + 1] == y && velocities[v + 2] == z) {
+            return;
+        }
+        velocities[v] = x;
+        velocities[v + 1] = y;
+        velocities[v + 2] = z;
+        store.markDirty(storeIndex, TransformStore.VELOCITY);
     }
 
     public Spatial getSpatial() {
@@ -71,16 +245,34 @@ public abstract class Entity {
 
     public void setSpatial(Spatial spatial) {
         this.spatial = spatial;
-        if (spatial != null) {
-            spatial.setLocalTranslation(position);
-        }
+        syncSpatial();
+    }
+
+    public UpdatePriority getUpdatePriority() {
+        return updatePriority;
+    }
+
+    /**
+     * Set how often this entity updates when the manager uses an
+     * UpdateScheduler
+     */
+    public void setUpdatePriority(UpdatePriority updatePriority) {
+        this.updatePriority = updatePriority;
+    }
+
+    /**
+     * Get the components changed since the end of the last manager update,
+     * as TransformStore component bits
+     */
+    public int getDirtyMask() {
+        return store.getDirtyMask(storeIndex);
     }
 
     public boolean isActive() {
-        return active;
+        return store.isActive(storeIndex);
     }
 
     public void setActive(boolean active) {
-        this.active = active;
+        store.setActive(storeIndex, active);
     }
 }
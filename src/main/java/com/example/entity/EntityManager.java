@@ -1,22 +1,108 @@
 package com.example.entity;
 
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
-import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
 
 import com.jme3.app.Application;
 import com.jme3.app.state.BaseAppState;
 
 /**
- * Entity Manager - manages all game entities
+ * Entity Manager - manages all game entities.
+ *
+ * Entity transforms live in a packed TransformStore that systems iterate
+ * linearly; the id map is only used for lookups.
+ *
+ * With parallel updates enabled, each frame runs these steps one after
+ * another, each finishing before the next starts:
+ * 1. system phases on a ForkJoin pool; systems whose read / write masks do
+ *    not conflict share a phase and run together,
+ * 2. parallel-safe entities, updated in chunks on the pool while the render
+ *    thread waits,
+ * 3. all other entities, on the render thread,
+ * 4. spatial write-back and change events, on the render thread.
+ *
+ * Adds and removes are buffered and applied together at the start of the
+ * next update, so entities are never initialized or cleaned up in the
+ * middle of a frame. Lookups by id see the change immediately.
+ *
+ * An optional UpdateScheduler lowers the tick rate of distant or
+ * low-priority entities. Systems always run every frame.
+ *
+ * Not thread-safe: add, remove and look up entities on the render thread
+ * only. Physics callbacks and worker tasks should hand changes to the render
+ * thread, e.g. through Application.enqueue. Lookups from parallel-safe
+ * entity updates are fine, since nothing is added or removed while they run.
  */
 public class EntityManager extends BaseAppState {
     
-    private Map<String, Entity> entities;
+    /**
+     * Receives entity lifecycle and change events, e.g. for rendering sync,
+     * networking or persistence that only want deltas
+     */
+    public interface EntityListener {
+        
+        /**
+         * Called when a buffered add is applied
+         */
+        default void onEntityAdded(Entity entity) {
+        }
+        
+        /**
+         * Called when a buffered remove is applied, before the entity is
+         * cleaned up or returned to its pool
+         */
+        default void onEntityRemoved(Entity entity) {
+        }
+        
+        /**
+         * Called once per frame for every entity whose state changed
+         * @param changedMask TransformStore component bits that changed
+         */
+        default void onEntityChanged(Entity entity, int changedMask) {
+        }
+    }
+    
+    private final Map<String, Entity> entities;
+    private final TransformStore transforms;
+    private final List<EntitySystem> systems;
+    private final SpatialHashGrid spatialIndex;
+    private final List<Entity> pendingAdds;
+    private final List<Entity> pendingRemoves;
+    private final List<EntityListener> listeners;
     private boolean initialized = false;
     
+    // Entities changed during the last update, with their changed components
+    private Entity[] changedEntities = new Entity[256];
+    private int[] changedMasks = new int[256];
+    private int changedCount;
+    
+    // Parallel update state
+    private static final int MIN_ENTITIES_PER_TASK = 64;
+    private boolean parallel = false;
+    private ForkJoinPool pool = ForkJoinPool.commonPool();
+    private final List<SystemPhaseTask> systemPhases = new ArrayList<>();
+    private boolean phasesDirty = true;
+    private int[] parallelIndices = new int[256];
+    private float[] parallelTimes = new float[256];
+    
+    private UpdateScheduler scheduler;
+    
     public EntityManager() {
-        this.entities = new ConcurrentHashMap<>();
+        this.entities = new HashMap<>();
+        this.transforms = new TransformStore();
+        this.transforms.setDeferSpatialSync(true);
+        this.spatialIndex = new SpatialHashGrid(transforms);
+        this.pendingAdds = new ArrayList<>();
+        this.pendingRemoves = new ArrayList<>();
+        this.listeners = new ArrayList<>();
+        this.systems = new ArrayList<>();
+        this.systems.add(new MovementSystem());
     }
     
     @Override
@@ -27,11 +113,32 @@ public class EntityManager extends BaseAppState {
     
     @Override
     protected void cleanup(Application app) {
+        // Entities still waiting to be added only own resources if pooled
+        for (int i = 0; i < pendingAdds.size(); i++) {
+            Entity entity = pendingAdds.get(i);
+            entity.pendingAdd = false;
+            if (entity.initialized) {
+                entity.cleanup();
+                entity.initialized = false;
+            }
+        }
+        pendingAdds.clear();
+        for (int i = 0; i < pendingRemoves.size(); i++) {
+            pendingRemoves.get(i).pendingRemove = false;
+        }
+        pendingRemoves.clear();
+        
         // Cleanup all entities
-        for (Entity entity : entities.values()) {
+        for (int i = transforms.size() - 1; i >= 0; i--) {
+            Entity entity = transforms.getEntity(i);
             entity.cleanup();
+            entity.initialized = false;
+            spatialIndex.remove(entity);
+            entity.detach();
         }
         entities.clear();
+        Arrays.fill(changedEntities, 0, changedCount, null);
+        changedCount = 0;
         this.initialized = false;
         System.out.println("EntityManager cleaned up");
     }
@@ -50,16 +157,340 @@ public class EntityManager extends BaseAppState {
     public void update(float tpf) {
         super.update(tpf);
         
-        // Update all active entities
-        for (Entity entity : entities.values()) {
-            if (entity.isActive()) {
-                entity.update(tpf);
+        // Apply buffered adds and removes in one batch
+        flushCommands();
+        
+        if (scheduler != null) {
+            scheduler.beginFrame();
+        }
+        
+        // Run bulk systems over the packed arrays
+        if (parallel) {
+            runSystemPhases(tpf);
+        } else {
+            for (int i = 0; i < systems.size(); i++) {
+                systems.get(i).update(transforms, tpf);
+            }
+        }
+        
+        if (parallel) {
+            updateParallelEntities(tpf);
+        }
+        
+        // Update the remaining active entities. Adds and removes are
+        // buffered, so the store only changes here if an entity calls
+        // flushCommands() itself; the size check covers that case.
+        for (int i = transforms.size() - 1; i >= 0; i--) {
+            if (i < transforms.size() && transforms.isActive(i)) {
+                Entity entity = transforms.getEntity(i);
+                if (!parallel || !entity.isParallelSafe()) {
+                    float elapsed = scheduler != null ? scheduler.advance(entity, transforms, i, tpf) : tpf;
+                    if (elapsed >= 0f) {
+                        entity.update(elapsed);
+                    }
+                }
+            }
+        }
+        
+        // Barrier passed: all parallel work has joined
+        processChanges();
+    }
+    
+    /**
+     * Run systems phase by phase; systems within a phase run concurrently
+     */
+    private void runSystemPhases(float tpf) {
+        if (phasesDirty) {
+            buildSystemPhases();
+        }
+        for (int p = 0; p < systemPhases.size(); p++) {
+            SystemPhaseTask phase = systemPhases.get(p);
+            if (phase.tasks.length == 1) {
+                phase.tasks[0].system.update(transforms, tpf);
+                continue;
+            }
+            phase.prepare(tpf);
+            pool.invoke(phase);
+        }
+    }
+    
+    /**
+     * Runs the systems of one phase concurrently. Built with the phases and
+     * reinitialized every frame, so running them allocates nothing.
+     */
+    private final class SystemPhaseTask extends RecursiveAction {
+        
+        private final SystemTask[] tasks;
+        
+        SystemPhaseTask(List<EntitySystem> phase) {
+            tasks = new SystemTask[phase.size()];
+            for (int i = 0; i < tasks.length; i++) {
+                tasks[i] = new SystemTask(phase.get(i));
+            }
+        }
+        
+        void prepare(float tpf) {
+            reinitialize();
+            for (int i = 0; i < tasks.length; i++) {
+                tasks[i].reinitialize();
+                tasks[i].tpf = tpf;
+            }
+        }
+        
+        @Override
+        protected void compute() {
+            ForkJoinTask.invokeAll(tasks);
+        }
+    }
+    
+    /**
+     * Runs one system as part of a SystemPhaseTask
+     */
+    private final class SystemTask extends RecursiveAction {
+        
+        private final EntitySystem system;
+        private float tpf;
+        
+        SystemTask(EntitySystem system) {
+            this.system = system;
+        }
+        
+        @Override
+        protected void compute() {
+            system.update(transforms, tpf);
+        }
+    }
+    
+    /**
+     * Group systems into phases, keeping registration order between systems
+     * that touch the same components
+     */
+    private void buildSystemPhases() {
+        systemPhases.clear();
+        List<EntitySystem> current = null;
+        for (int i = 0; i < systems.size(); i++) {
+            EntitySystem system = systems.get(i);
+            if (current == null || conflictsWithAny(system, current)) {
+                if (current != null) {
+                    systemPhases.add(new SystemPhaseTask(current));
+                }
+                current = new ArrayList<>();
+            }
+            current.add(system);
+        }
+        if (current != null) {
+            systemPhases.add(new SystemPhaseTask(current));
+        }
+        phasesDirty = false;
+    }
+    
+    private static boolean conflictsWithAny(EntitySystem system, List<EntitySystem> phase) {
+        for (int i = 0; i < phase.size(); i++) {
+            EntitySystem other = phase.get(i);
+            if ((system.getWriteMask() & (other.getReadMask() | other.getWriteMask())) != 0
+                    || (other.getWriteMask() & system.getReadMask()) != 0) {
+                return true;
+            }
+        }
+        return false;
+    }
+    
+    /**
+     * Update all active parallel-safe entities on the pool
+     */
+    private void updateParallelEntities(float tpf) {
+        // Collect the entities that tick this frame on the render thread
+        int count = 0;
+        for (int i = 0, size = transforms.size(); i < size; i++) {
+            Entity entity = transforms.getEntity(i);
+            if (transforms.isActive(i) && entity.isParallelSafe()) {
+                float elapsed = scheduler != null ? scheduler.advance(entity, transforms, i, tpf) : tpf;
+                if (elapsed < 0f) {
+                    continue;
+                }
+                if (count == parallelIndices.length) {
+                    parallelIndices = Arrays.copyOf(parallelIndices, count * 2);
+                    parallelTimes = Arrays.copyOf(parallelTimes, count * 2);
+                }
+                parallelIndices[count] = i;
+                parallelTimes[count] = elapsed;
+                count++;
+            }
+        }
+        
+        if (count == 0) {
+            return;
+        }
+        if (count <= MIN_ENTITIES_PER_TASK) {
+            for (int i = 0; i < count; i++) {
+                transforms.getEntity(parallelIndices[i]).update(parallelTimes[i]);
+            }
+            return;
+        }
+        int grain = Math.max(MIN_ENTITIES_PER_TASK, count / (pool.getParallelism() * 4));
+        pool.invoke(new EntityUpdateTask(0, count, grain));
+    }
+    
+    /**
+     * Updates a range of the collected parallel-safe entities
+     */
+    private final class EntityUpdateTask extends RecursiveAction {
+        
+        private final int start;
+        private final int end;
+        private final int grain;
+        
+        EntityUpdateTask(int start, int end, int grain) {
+            this.start = start;
+            this.end = end;
+            this.grain = grain;
+        }
+        
+        @Override
+        protected void compute() {
+            if (end - start <= grain) {
+                for (int i = start; i < end; i++) {
+                    transforms.getEntity(parallelIndices[i]).update(parallelTimes[i]);
+                }
+                return;
             }
+            int middle = (start + end) >>> 1;
+            invokeAll(new EntityUpdateTask(start, middle, grain),
+                    new EntityUpdateTask(middle, end, grain));
         }
     }
     
     /**
-     * Add an entity to the manager
+     * Enable or disable parallel system and entity updates
+     */
+    public void setParallel(boolean parallel) {
+        this.parallel = parallel;
+    }
+    
+    public boolean isParallel() {
+        return parallel;
+    }
+    
+    /**
+     * Install a scheduler that lowers the update rate of distant or
+     * low-priority entities (null updates every entity every frame)
+     */
+    public void setUpdateScheduler(UpdateScheduler scheduler) {
+        this.scheduler = scheduler;
+        if (scheduler != null) {
+            for (int i = 0, count = transforms.size(); i < count; i++) {
+                scheduler.assignPhase(transforms.getEntity(i));
+            }
+        }
+    }
+    
+    public UpdateScheduler getUpdateScheduler() {
+        return scheduler;
+    }
+    
+    /**
+     * Set the pool used for parallel updates (the common pool by default)
+     */
+    public void setPool(ForkJoinPool pool) {
+        this.pool = pool;
+    }
+    
+    /**
+     * Collect the entities changed during the frame, copy moved positions to
+     * their spatials and spatial index cells, and notify listeners
+     */
+    private void processChanges() {
+        changedCount = 0;
+        for (int i = 0, count = transforms.size(); i < count; i++) {
+            int mask = transforms.getDirtyMask(i);
+            if (mask == 0) {
+                continue;
+            }
+            transforms.clearDirty(i);
+            Entity entity = transforms.getEntity(i);
+            if ((mask & TransformStore.POSITION) != 0) {
+                spatialIndex.update(entity);
+                entity.syncSpatial();
+            }
+            
+            if (changedCount == changedEntities.length) {
+                changedEntities = Arrays.copyOf(changedEntities, changedCount * 2);
+                changedMasks = Arrays.copyOf(changedMasks, changedCount * 2);
+            }
+            changedEntities[changedCount] = entity;
+            changedMasks[changedCount] = mask;
+            changedCount++;
+        }
+        
+        for (int l = 0; l < listeners.size(); l++) {
+            EntityListener listener = listeners.get(l);
+            for (int i = 0; i < changedCount; i++) {
+                listener.onEntityChanged(changedEntities[i], changedMasks[i]);
+            }
+        }
+    }
+    
+    /**
+     * Get the number of entities that changed during the last update
+     */
+    public int getChangedCount() {
+        return changedCount;
+    }
+    
+    /**
+     * Get an entity of the last update's changed set
+     */
+    public Entity getChangedEntity(int index) {
+        return changedEntities[index];
+    }
+    
+    /**
+     * Get the TransformStore component bits that changed for an entity of
+     * the last update's changed set
+     */
+    public int getChangedMask(int index) {
+        return changedMasks[index];
+    }
+    
+    public void addEntityListener(EntityListener listener) {
+        listeners.add(listener);
+    }
+    
+    public void removeEntityListener(EntityListener listener) {
+        listeners.remove(listener);
+    }
+    
+    /**
+     * Get the spatial index for radius, box and nearest-neighbour queries
+     */
+    public SpatialHashGrid getSpatialIndex() {
+        return spatialIndex;
+    }
+    
+    /**
+     * Add a system that runs over the packed entity data every frame,
+     * before the per-entity updates
+     */
+    public void addSystem(EntitySystem system) {
+        systems.add(system);
+        phasesDirty = true;
+    }
+    
+    public void removeSystem(EntitySystem system) {
+        systems.remove(system);
+        phasesDirty = true;
+    }
+    
+    /**
+     * Get the packed transform storage of all managed entities
+     */
+    public TransformStore getTransformStore() {
+        return transforms;
+    }
+    
+    /**
+     * Add an entity to the manager. The entity is initialized (or respawned,
+     * if it came from a pool) at the start of the next update.
      */
     public void addEntity(Entity entity) {
         if (entity == null) {
@@ -67,23 +498,102 @@ public class EntityManager extends BaseAppState {
             return;
         }
         
-        entities.put(entity.getId(), entity);
-        
-        // Always initialize entity immediately
-        entity.initialize();
-        
-        System.out.println("Entity added: " + entity.getId());
+        Entity previous = entities.put(entity.getId(), entity);
+        if (previous == entity) {
+            return;
+        }
+        if (previous != null) {
+            queueRemove(previous);
+        }
+        if (entity.pendingRemove) {
+            // Removed and re-added before the flush: just keep it
+            entity.pendingRemove = false;
+            pendingRemoves.remove(entity);
+            return;
+        }
+        entity.pendingAdd = true;
+        pendingAdds.add(entity);
     }
     
     /**
-     * Remove an entity from the manager
+     * Remove an entity from the manager. It is cleaned up (or returned to
+     * its pool) at the start of the next update.
      */
     public void removeEntity(String entityId) {
         Entity entity = entities.remove(entityId);
         if (entity != null) {
-            entity.cleanup();
-            System.out.println("Entity removed: " + entityId);
+            queueRemove(entity);
+        }
+    }
+    
+    private void queueRemove(Entity entity) {
+        if (entity.pendingAdd) {
+            // Never applied, so there is nothing to undo
+            entity.pendingAdd = false;
+            pendingAdds.remove(entity);
+            if (entity.pool != null && entity.pool.hasRoom()) {
+                entity.pool.release(entity);
+            } else if (entity.initialized) {
+                entity.cleanup();
+                entity.initialized = false;
+            }
+            return;
+        }
+        entity.pendingRemove = true;
+        pendingRemoves.add(entity);
+    }
+    
+    /**
+     * Apply all buffered adds and removes. Runs at the start of every
+     * update; call it directly to apply changes earlier.
+     */
+    public void flushCommands() {
+        for (int i = 0; i < pendingRemoves.size(); i++) {
+            Entity entity = pendingRemoves.get(i);
+            entity.pendingRemove = false;
+            for (int l = 0; l < listeners.size(); l++) {
+                listeners.get(l).onEntityRemoved(entity);
+            }
+            spatialIndex.remove(entity);
+            entity.detach();
+            
+            if (entity.pool != null && entity.pool.hasRoom()) {
+                entity.onDespawn();
+                entity.pool.release(entity);
+            } else {
+                entity.cleanup();
+                entity.initialized = false;
+            }
         }
+        pendingRemoves.clear();
+        
+        for (int i = 0; i < pendingAdds.size(); i++) {
+            Entity entity = pendingAdds.get(i);
+            entity.pendingAdd = false;
+            entity.attachTo(transforms);
+            spatialIndex.insert(entity);
+            if (scheduler != null) {
+                scheduler.assignPhase(entity);
+            }
+            
+            if (entity.initialized) {
+                entity.onSpawn();
+            } else {
+                entity.initialize();
+                entity.initialized = true;
+            }
+            for (int l = 0; l < listeners.size(); l++) {
+                listeners.get(l).onEntityAdded(entity);
+            }
+        }
+        pendingAdds.clear();
+    }
+    
+    /**
+     * Get the number of adds and removes waiting for the next flush
+     */
+    public int getPendingCommandCount() {
+        return pendingAdds.size() + pendingRemoves.size();
     }
     
     /**
@@ -140,8 +650,10 @@ public class EntityManager extends BaseAppState {
      * Initialize all entities (called when manager is initialized)
      */
     private void initializeAllEntities() {
-        for (Entity entity : entities.values()) {
+        for (int i = 0, count = transforms.size(); i < count; i++) {
+            Entity entity = transforms.getEntity(i);
             entity.initialize();
+            entity.initialized = true;
         }
     }
 }
\ No newline at end of file
@@ -0,0 +1,89 @@
+package com.example.entity;
+
+import java.util.ArrayDeque;
+import java.util.function.Supplier;
+
+/**
+ * Pool of reusable entities of one type, for things that spawn and despawn
+ * often such as projectiles and debris.
+ *
+ * An entity obtained from a pool returns to it when it is removed from the
+ * EntityManager: instead of cleanup() it gets onDespawn(), keeping its
+ * spatial and physics objects, and onSpawn() when it is added again. Only
+ * the first add of a new instance calls initialize().
+ */
+public class EntityPool<T extends Entity> {
+
+    private final Supplier<T> factory;
+    private final ArrayDeque<T> free;
+    private final int maxSize;
+
+    /**
+     * Create a pool
+     * @param factory Creates new entities when the pool is empty
+     * @param maxSize Entities released beyond this are cleaned up instead
+     */
+    public EntityPool(Supplier<T> factory, int maxSize) {
+        this.factory = factory;
+        this.free = new ArrayDeque<>(Math.max(16, maxSize));
+        this.maxSize = maxSize;
+    }
+
+    /**
+     * Take an entity from the pool, or create one if it is empty
+     * @param id The id the entity is managed under
+     */
+    public T obtain(String id) {
+        T entity = free.poll();
+        if (entity == null) {
+            entity = factory.get();
+        }
+        entity.id = id;
+        entity.pool = this;
+        return entity;
+    }
+
+    /**
+     * Create entities up front so the first spawns do not allocate
+     */
+    public void prewarm(int count) {
+        while (free.size() < Math.min(count, maxSize)) {
+            T entity = factory.get();
+            entity.pool = this;
+            free.push(entity);
+        }
+    }
+
+    /**
+     * Check if a released entity would be kept
+     */
+    boolean hasRoom() {
+        return free.size() < maxSize;
+    }
+
+    @SuppressWarnings("unchecked")
+    void release(Entity entity) {
+        free.push((T) entity);
+    }
+
+    /**
+     * Get the number of entities waiting for reuse
+     */
+    public int getFreeCount() {
+        return free.size();
+    }
+
+    /**
+     * Clean up and drop all pooled entities
+     */
+    public void clear() {
+        T entity;
+        while ((entity = free.poll()) != null) {
+            if (entity.initialized) {
+                entity.cleanup();
+                entity.initialized = false;
+            }
+            entity.pool = null;
+        }
+    }
+}
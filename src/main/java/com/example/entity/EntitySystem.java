@@ -0,0 +1,28 @@
+package com.example.entity;
+
+/**
+ * A system that processes entity data in bulk, iterating the packed arrays
+ * of a TransformStore instead of calling into each Entity
+ */
+public interface EntitySystem {
+
+    /**
+     * Process all entities in the store
+     */
+    void update(TransformStore transforms, float tpf);
+
+    /**
+     * Get the TransformStore components this system reads. Systems whose
+     * masks do not conflict may run at the same time.
+     */
+    default int getReadMask() {
+        return TransformStore.ALL;
+    }
+
+    /**
+     * Get the TransformStore components this system writes
+     */
+    default int getWriteMask() {
+        return TransformStore.ALL;
+    }
+}
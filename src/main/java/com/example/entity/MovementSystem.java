@@ -0,0 +1,37 @@
+package com.example.entity;
+
+/**
+ * Integrates entity velocities into positions
+ */
+public class MovementSystem implements EntitySystem {
+
+    @Override
+    public void update(TransformStore transforms, float tpf) {
+        float[] positions = transforms.getPositions();
+        float[] velocities = transforms.getVelocities();
+
+        for (int i = 0, count = transforms.size(); i < count; i++) {
+            int v = i * TransformStore.STRIDE;
+            float vx = velocities[v];
+            float vy = velocities[v + 1];
+            float vz = velocities[v + 2];
+            if (!transforms.isActive(i) || (vx == 0f && vy == 0f && vz == 0f)) {
+                continue;
+            }
+            positions[v] += vx * tpf;
+            positions[v + 1] += vy * tpf;
+            positions[v + 2] += vz * tpf;
+            transforms.markMoved(i);
+        }
+    }
+
+    @Override
+    public int getReadMask() {
+        return TransformStore.POSITION | TransformStore.VELOCITY | TransformStore.ACTIVE;
+    }
+
+    @Override
+    public int getWriteMask() {
+        return TransformStore.POSITION;
+    }
+}
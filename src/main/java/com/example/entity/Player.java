@@ -33,9 +33,14 @@ public class Player extends Entity {
     // Movement state
     private boolean onGround = false;
     
+    // Reused every frame to read the physics location
+    private final Vector3f tempLocation = new Vector3f();
+    
     public Player(String id, Vector3f startPosition, 
                   BulletAppState bulletAppState, AssetManager assetManager, Node rootNode) {
         super(id, startPosition);
+        // The player drives the camera, so it never skips frames
+        setUpdatePriority(UpdatePriority.ALWAYS);
         this.bulletAppState = bulletAppState;
         this.assetManager = assetManager;
         this.rootNode = rootNode;
@@ -47,9 +52,9 @@ public class Player extends Entity {
         setupPhysics();
         
         // Start inactive - will be activated when switching to FPS mode
-        active = false;
+        setActive(false);
         
-        System.out.println("Player initialized at: " + position + " (inactive until FPS mode)");
+        System.out.println("Player initialized at: " + getPosition() + " (inactive until FPS mode)");
     }
     
     private void createPlayerCapsule() {
@@ -64,9 +69,8 @@ public class Player extends Entity {
         capsuleGeom.setMaterial(mat);
         
         // Position the visual capsule
-        capsuleGeom.setLocalTranslation(position);
-        
         this.spatial = capsuleGeom;
+        syncSpatial();
         rootNode.attachChild(capsuleGeom);
     }
     
@@ -79,7 +83,7 @@ public class Player extends Entity {
         characterControl.setJumpSpeed(jumpSpeed);
         characterControl.setFallSpeed(fallSpeed);
         characterControl.setGravity(gravity);
-        characterControl.setPhysicsLocation(position);
+        characterControl.setPhysicsLocation(getPosition());
         
         // Add physics control to spatial
         spatial.addControl(characterControl);
@@ -92,15 +96,10 @@ public class Player extends Entity {
     
     @Override
     public void update(float tpf) {
-        if (!active || characterControl == null) return;
-        
-        // Update position from physics
-        position = characterControl.getPhysicsLocation().clone();
+        if (!isActive() || characterControl == null) return;
         
-        // Update visual representation position
-        if (spatial != null) {
-            spatial.setLocalTranslation(position);
-        }
+        // Update position from physics (also moves the visual representation)
+        setPosition(characterControl.getPhysicsLocation(tempLocation));
         
         // Update ground state
         onGround = characterControl.onGround();
@@ -125,7 +124,7 @@ public class Player extends Entity {
         Vector3f adjustedPosition = newPosition.clone();
         adjustedPosition.y = Math.max(adjustedPosition.y, 1.0f); // Minimum height above ground
         
-        this.position = adjustedPosition.clone();
+        setPosition(adjustedPosition);
         if (characterControl != null) {
             characterControl.setPhysicsLocation(adjustedPosition);
             // Give physics a moment to settle
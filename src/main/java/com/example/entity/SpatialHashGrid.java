@@ -0,0 +1,300 @@
+package com.example.entity;
+
+import java.util.Arrays;
+
+import com.example.util.LongIntMap;
+
+/**
+ * Uniform grid over the XZ plane that indexes entities by position, for
+ * proximity queries without scanning every entity.
+ *
+ * Each cell is an intrusive doubly linked list of entries kept in parallel
+ * arrays, so moving an entity between cells is O(1) and allocates nothing.
+ * Queries write into caller-owned arrays and return the number of results.
+ * EntityManager refreshes the grid for moved entities at the end of each
+ * update, so membership reflects positions as of the last frame; distance
+ * tests always use the current positions.
+ */
+public class SpatialHashGrid {
+
+    public static final float DEFAULT_CELL_SIZE = 8f;
+
+    private static final int NONE = -1;
+
+    private final TransformStore transforms;
+    private final float cellSize;
+    private final float inverseCellSize;
+
+    // Cell key -> first entry in the cell
+    private final LongIntMap cellHeads;
+
+    // Entries, indexed by Entity.gridEntry
+    private Entity[] entries;
+    private long[] entryCells;
+    private int[] next;
+    private int[] previous;
+    private int[] freeEntries;
+    private int freeCount;
+    private int highWaterMark;
+    private int count;
+
+    // Scratch distances for k-nearest queries
+    private float[] nearestDistances = new float[16];
+
+    public SpatialHashGrid(TransformStore transforms) {
+        this(transforms, DEFAULT_CELL_SIZE);
+    }
+
+    public SpatialHashGrid(TransformStore transforms, float cellSize) {
+        if (cellSize <= 0f) {
+            throw new IllegalArgumentException("Cell size must be positive: " + cellSize);
+        }
+        this.transforms = transforms;
+        this.cellSize = cellSize;
+        this.inverseCellSize = 1f / cellSize;
+        this.cellHeads = new LongIntMap(256);
+        this.entries = new Entity[256];
+        this.entryCells = new long[256];
+        this.next = new int[256];
+        this.previous = new int[256];
+        this.freeEntries = new int[256];
+    }
+
+    /**
+     * Add an entity at its current position
+     */
+    void insert(Entity entity) {
+        if (entity.gridEntry != NONE) {
+            update(entity);
+            return;
+        }
+        int entry;
+        if (freeCount > 0) {
+            entry = freeEntries[--freeCount];
+        } else {
+            if (highWaterMark == entries.length) {
+                grow(entries.length * 2);
+            }
+            entry = highWaterMark++;
+        }
+        entries[entry] = entity;
+        entity.gridEntry = entry;
+        link(entry, cellOf(entity));
+        count++;
+    }
+
+    /**
+     * Move an entity to the cell of its current position if it changed
+     */
+    void update(Entity entity) {
+        int entry = entity.gridEntry;
+        if (entry == NONE) {
+            return;
+        }
+        long cell = cellOf(entity);
+        if (cell != entryCells[entry]) {
+            unlink(entry);
+            link(entry, cell);
+        }
+    }
+
+    /**
+     * Remove an entity from the grid
+     */
+    void remove(Entity entity) {
+        int entry = entity.gridEntry;
+        if (entry == NONE) {
+            return;
+        }
+        unlink(entry);
+        entries[entry] = null;
+        entity.gridEntry = NONE;
+        freeEntries[freeCount++] = entry;
+        count--;
+    }
+
+    /**
+     * Find entities within a radius of a point
+     * @param out Receives the entities; results beyond its length are dropped
+     * @return Number of entities written
+     */
+    public int queryRadius(float x, float y, float z, float radius, Entity[] out) {
+        float radiusSquared = radius * radius;
+        int minX = cellCoord(x - radius);
+        int maxX = cellCoord(x + radius);
+        int minZ = cellCoord(z - radius);
+        int maxZ = cellCoord(z + radius);
+        float[] positions = transforms.getPositions();
+
+        int found = 0;
+        for (int cx = minX; cx <= maxX; cx++) {
+            for (int cz = minZ; cz <= maxZ; cz++) {
+                for (int e = cellHeads.get(key(cx, cz), NONE); e != NONE; e = next[e]) {
+                    int v = entries[e].getStoreIndex() * TransformStore.STRIDE;
+                    float dx = positions[v] - x;
+                    float dy = positions[v + 1] - y;
+                    float dz = positions[v + 2] - z;
+                    if (dx * dx + dy * dy + dz * dz <= radiusSquared) {
+                        if (found == out.length) {
+                            return found;
+                        }
+                        out[found++] = entries[e];
+                    }
+                }
+            }
+        }
+        return found;
+    }
+
+    /**
+     * Find entities inside an axis-aligned box
+     * @return Number of entities written to out
+     */
+    public int queryAabb(float minX, float minY, float minZ, float maxX, float maxY, float maxZ, Entity[] out) {
+        int minCellX = cellCoord(minX);
+        int maxCellX = cellCoord(maxX);
+        int minCellZ = cellCoord(minZ);
+        int maxCellZ = cellCoord(maxZ);
+        float[] positions = transforms.getPositions();
+
+        int found = 0;
+        for (int cx = minCellX; cx <= maxCellX; cx++) {
+            for (int cz = minCellZ; cz <= maxCellZ; cz++) {
+                for (int e = cellHeads.get(key(cx, cz), NONE); e != NONE; e = next[e]) {
+                    int v = entries[e].getStoreIndex() * TransformStore.STRIDE;
+                    float px = positions[v];
+                    float py = positions[v + 1];
+                    float pz = positions[v + 2];
+                    if (px >= minX && px <= maxX && py >= minY && py <= maxY && pz >= minZ && pz <= maxZ) {
+                        if (found == out.length) {
+                            return found;
+                        }
+                        out[found++] = entries[e];
+                    }
+                }
+            }
+        }
+        return found;
+    }
+
+    /**
+     * Find the k entities nearest to a point, closest first
+     * @param maxRadius Ignore entities farther away than this
+     * @param out Receives up to k entities (k is capped at out.length)
+     * @return Number of entities written
+     */
+    public int queryNearest(float x, float y, float z, int k, float maxRadius, Entity[] out) {
+        k = Math.min(k, out.length);
+        if (k <= 0) {
+            return 0;
+        }
+        if (nearestDistances.length < k) {
+            nearestDistances = new float[k];
+        }
+        float[] distances = nearestDistances;
+        float maxRadiusSquared = maxRadius * maxRadius;
+        float[] positions = transforms.getPositions();
+        int centerX = cellCoord(x);
+        int centerZ = cellCoord(z);
+        int maxRing = (int) Math.ceil(maxRadius * inverseCellSize) + 1;
+
+        int found = 0;
+        for (int ring = 0; ring <= maxRing; ring++) {
+            // Visit the cells on the border of the square ring
+            for (int cx = centerX - ring; cx <= centerX + ring; cx++) {
+                boolean edgeColumn = cx == centerX - ring || cx == centerX + ring;
+                int step = edgeColumn ? 1 : Math.max(1, 2 * ring);
+                for (int cz = centerZ - ring; cz <= centerZ + ring; cz += step) {
+                    for (int e = cellHeads.get(key(cx, cz), NONE); e != NONE; e = next[e]) {
+                        int v = entries[e].getStoreIndex() * TransformStore.STRIDE;
+                        float dx = positions[v] - x;
+                        float dy = positions[v + 1] - y;
+                        float dz = positions[v + 2] - z;
+                        float distanceSquared = dx * dx + dy * dy + dz * dz;
+                        if (distanceSquared > maxRadiusSquared || (found == k && distanceSquared >= distances[k - 1])) {
+                            continue;
+                        }
+
+                        // Insertion into the sorted result
+                        int slot = found < k ? found++ : k - 1;
+                        while (slot > 0 && distances[slot - 1] > distanceSquared) {
+                            distances[slot] = distances[slot - 1];
+                            out[slot] = out[slot - 1];
+                            slot--;
+                        }
+                        distances[slot] = distanceSquared;
+                        out[slot] = entries[e];
+                    }
+                }
+            }
+
+            // Unvisited cells are at least ring cells away horizontally
+            float reach = ring * cellSize;
+            if (found == k && distances[k - 1] <= reach * reach) {
+                break;
+            }
+        }
+        return found;
+    }
+
+    /**
+     * Get the number of indexed entities
+     */
+    public int size() {
+        return count;
+    }
+
+    public float getCellSize() {
+        return cellSize;
+    }
+
+    private void link(int entry, long cell) {
+        int head = cellHeads.get(cell, NONE);
+        entryCells[entry] = cell;
+        previous[entry] = NONE;
+        next[entry] = head;
+        if (head != NONE) {
+            previous[head] = entry;
+        }
+        cellHeads.put(cell, entry);
+    }
+
+    private void unlink(int entry) {
+        int before = previous[entry];
+        int after = next[entry];
+        if (before == NONE) {
+            if (after == NONE) {
+                cellHeads.remove(entryCells[entry], NONE);
+            } else {
+                cellHeads.put(entryCells[entry], after);
+            }
+        } else {
+            next[before] = after;
+        }
+        if (after != NONE) {
+            previous[after] = before;
+        }
+    }
+
+    private long cellOf(Entity entity) {
+        float[] positions = transforms.getPositions();
+        int v = entity.getStoreIndex() * TransformStore.STRIDE;
+        return key(cellCoord(positions[v]), cellCoord(positions[v + 2]));
+    }
+
+    private int cellCoord(float value) {
+        return (int) Math.floor(value * inverseCellSize);
+    }
+
+    private static long key(int cellX, int cellZ) {
+        return ((long) cellX << 32) | (cellZ & 0xFFFFFFFFL);
+    }
+
+    private void grow(int capacity) {
+        entries = Arrays.copyOf(entries, capacity);
+        entryCells = Arrays.copyOf(entryCells, capacity);
+        next = Arrays.copyOf(next, capacity);
+        previous = Arrays.copyOf(previous, capacity);
+        freeEntries = Arrays.copyOf(freeEntries, capacity);
+    }
+}
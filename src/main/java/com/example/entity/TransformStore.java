@@ -0,0 +1,240 @@
+package com.example.entity;
+
+import java.util.Arrays;
+
+/**
+ * Structure-of-arrays storage for entity transforms.
+ *
+ * Position, rotation and velocity of every entity live in packed float
+ * arrays (three floats per entity), so systems can walk them linearly
+ * instead of chasing one Vector3f per entity. Slots are kept dense: removing
+ * an entity moves the last one into the hole, and the moved entity's
+ * facade is told its new index.
+ *
+ * Every slot also carries one dirty flag per component, set when the value
+ * changes and cleared by the EntityManager at the end of the frame. The
+ * flags are separate arrays so systems writing different components can
+ * flag the same slot from different threads.
+ */
+public class TransformStore {
+
+    public static final int STRIDE = 3;
+
+    // Component bits for system read / write masks
+    public static final int POSITION = 1;
+    public static final int ROTATION = 1 << 1;
+    public static final int VELOCITY = 1 << 2;
+    public static final int ACTIVE = 1 << 3;
+    public static final int ALL = POSITION | ROTATION | VELOCITY | ACTIVE;
+
+    private float[] positions;
+    private float[] rotations;
+    private float[] velocities;
+    private boolean[] active;
+    private boolean[] positionDirty;
+    private boolean[] rotationDirty;
+    private boolean[] velocityDirty;
+    private boolean[] activeDirty;
+    private Entity[] entities;
+    private int size;
+    private boolean deferSpatialSync;
+
+    public TransformStore() {
+        this(256);
+    }
+
+    public TransformStore(int initialCapacity) {
+        int capacity = Math.max(1, initialCapacity);
+        this.positions = new float[capacity * STRIDE];
+        this.rotations = new float[capacity * STRIDE];
+        this.velocities = new float[capacity * STRIDE];
+        this.active = new boolean[capacity];
+        this.positionDirty = new boolean[capacity];
+        this.rotationDirty = new boolean[capacity];
+        this.velocityDirty = new boolean[capacity];
+        this.activeDirty = new boolean[capacity];
+        this.entities = new Entity[capacity];
+    }
+
+    /**
+     * Append a zeroed, active slot for an entity and return its index
+     */
+    int add(Entity entity) {
+        if (size == entities.length) {
+            grow(entities.length * 2);
+        }
+        int index = size++;
+        int v = index * STRIDE;
+        for (int i = 0; i < STRIDE; i++) {
+            positions[v + i] = 0f;
+            rotations[v + i] = 0f;
+            velocities[v + i] = 0f;
+        }
+        active[index] = true;
+        clearDirty(index);
+        entities[index] = entity;
+        return index;
+    }
+
+    /**
+     * Remove a slot, moving the last slot into it
+     */
+    void remove(int index) {
+        int last = --size;
+        if (index != last) {
+            System.arraycopy(positions, last * STRIDE, positions, index * STRIDE, STRIDE);
+            System.arraycopy(rotations, last * STRIDE, rotations, index * STRIDE, STRIDE);
+            System.arraycopy(velocities, last * STRIDE, velocities, index * STRIDE, STRIDE);
+            active[index] = active[last];
+            positionDirty[index] = positionDirty[last];
+            rotationDirty[index] = rotationDirty[last];
+            velocityDirty[index] = velocityDirty[last];
+            activeDirty[index] = activeDirty[last];
+            entities[index] = entities[last];
+            entities[index].setStoreIndex(index);
+        }
+        entities[last] = null;
+    }
+
+    /**
+     * Copy the data of a slot in another store into a slot of this one.
+     * Dirty flags are not copied; the slot starts clean.
+     */
+    void copySlot(TransformStore source, int sourceIndex, int index) {
+        System.arraycopy(source.positions, sourceIndex * STRIDE, positions, index * STRIDE, STRIDE);
+        System.arraycopy(source.rotations, sourceIndex * STRIDE, rotations, index * STRIDE, STRIDE);
+        System.arraycopy(source.velocities, sourceIndex * STRIDE, velocities, index * STRIDE, STRIDE);
+        active[index] = source.active[sourceIndex];
+        clearDirty(index);
+    }
+
+    /**
+     * Make entity position setters only flag the slot, leaving the spatial
+     * write-back to the owner of the store
+     */
+    void setDeferSpatialSync(boolean deferSpatialSync) {
+        this.deferSpatialSync = deferSpatialSync;
+    }
+
+    boolean isDeferSpatialSync() {
+        return deferSpatialSync;
+    }
+
+    /**
+     * Get the number of entities stored
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Get the packed positions (x, y, z per entity). The array is replaced
+     * when the store grows, so fetch it again each update.
+     */
+    public float[] getPositions() {
+        return positions;
+    }
+
+    /**
+     * Get the packed rotations (x, y, z per entity)
+     */
+    public float[] getRotations() {
+        return rotations;
+    }
+
+    /**
+     * Get the packed velocities (x, y, z per entity)
+     */
+    public float[] getVelocities() {
+        return velocities;
+    }
+
+    public boolean isActive(int index) {
+        return active[index];
+    }
+
+    void setActive(int index, boolean value) {
+        if (active[index] != value) {
+            active[index] = value;
+            activeDirty[index] = true;
+        }
+    }
+
+    /**
+     * Flag components of a slot that were written directly in the arrays.
+     * A moved position is copied to the entity's spatial at the end of the
+     * frame.
+     * @param mask Component bits (POSITION, ROTATION, VELOCITY, ACTIVE)
+     */
+    public void markDirty(int index, int mask) {
+        if ((mask & POSITION) != 0) {
+            positionDirty[index] = true;
+        }
+        if ((mask & ROTATION) != 0) {
+            rotationDirty[index] = true;
+        }
+        if ((mask & VELOCITY) != 0) {
+            velocityDirty[index] = true;
+        }
+        if ((mask & ACTIVE) != 0) {
+            activeDirty[index] = true;
+        }
+    }
+
+    /**
+     * Flag a slot whose position was written directly in the arrays
+     */
+    public void markMoved(int index) {
+        positionDirty[index] = true;
+    }
+
+    public boolean isMoved(int index) {
+        return positionDirty[index];
+    }
+
+    /**
+     * Get the components of a slot changed since the flags were last cleared
+     */
+    public int getDirtyMask(int index) {
+        int mask = 0;
+        if (positionDirty[index]) {
+            mask |= POSITION;
+        }
+        if (rotationDirty[index]) {
+            mask |= ROTATION;
+        }
+        if (velocityDirty[index]) {
+            mask |= VELOCITY;
+        }
+        if (activeDirty[index]) {
+            mask |= ACTIVE;
+        }
+        return mask;
+    }
+
+    void clearDirty(int index) {
+        positionDirty[index] = false;
+        rotationDirty[index] = false;
+        velocityDirty[index] = false;
+        activeDirty[index] = false;
+    }
+
+    /**
+     * Get the entity facade stored at an index
+     */
+    public Entity getEntity(int index) {
+        return entities[index];
+    }
+
+    private void grow(int capacity) {
+        positions = Arrays.copyOf(positions, capacity * STRIDE);
+        rotations = Arrays.copyOf(rotations, capacity * STRIDE);
+        velocities = Arrays.copyOf(velocities, capacity * STRIDE);
+        active = Arrays.copyOf(active, capacity);
+        positionDirty = Arrays.copyOf(positionDirty, capacity);
+        rotationDirty = Arrays.copyOf(rotationDirty, capacity);
+        velocityDirty = Arrays.copyOf(velocityDirty, capacity);
+        activeDirty = Arrays.copyOf(activeDirty, capacity);
+        entities = Arrays.copyOf(entities, capacity);
+    }
+}
@@ -0,0 +1,11 @@
+package com.example.entity;
+
+/**
+ * How often an entity is updated when an UpdateScheduler is installed
+ */
+public enum UpdatePriority {
+    ALWAYS,     // Every frame, regardless of distance
+    AUTO,       // Interval chosen from the distance to the scheduler's focus
+    LOW,        // Every UpdateScheduler.MID_INTERVAL frames
+    BACKGROUND  // Every UpdateScheduler.FAR_INTERVAL frames
+}
@@ -0,0 +1,135 @@
+package com.example.entity;
+
+import com.jme3.math.Vector3f;
+import com.jme3.renderer.Camera;
+
+/**
+ * Decides which entities update in a frame.
+ *
+ * Each entity gets a tick interval of 1, 4 or 16 frames, from its
+ * UpdatePriority or, for AUTO, from its distance to a focus point (the
+ * camera or the player). Skipped frames accumulate their tpf, so an entity
+ * that ticks every 4th frame receives 4 frames worth of time. Every entity
+ * gets a phase offset when it is added, which spreads entities with the same
+ * interval evenly over the frames instead of ticking them all at once.
+ */
+public class UpdateScheduler {
+
+    public static final int NEAR_INTERVAL = 1;
+    public static final int MID_INTERVAL = 4;
+    public static final int FAR_INTERVAL = 16;
+
+    private float nearDistanceSquared = 50f * 50f;
+    private float farDistanceSquared = 150f * 150f;
+
+    private final Vector3f focus = new Vector3f();
+    private Camera focusCamera;
+    private Entity focusEntity;
+
+    private long frame;
+    private int nextPhase;
+
+    /**
+     * Entities within near update every frame, entities beyond far every
+     * FAR_INTERVAL frames, and the rest every MID_INTERVAL frames
+     */
+    public void setDistances(float near, float far) {
+        this.nearDistanceSquared = near * near;
+        this.farDistanceSquared = far * far;
+    }
+
+    /**
+     * Use a fixed focus point
+     */
+    public void setFocus(Vector3f focus) {
+        this.focus.set(focus);
+        this.focusCamera = null;
+        this.focusEntity = null;
+    }
+
+    /**
+     * Follow a camera's location
+     */
+    public void setFocus(Camera camera) {
+        this.focusCamera = camera;
+        this.focusEntity = null;
+    }
+
+    /**
+     * Follow an entity's position, e.g. the player
+     */
+    public void setFocus(Entity entity) {
+        this.focusEntity = entity;
+        this.focusCamera = null;
+    }
+
+    /**
+     * Advance to the next frame and refresh the focus point
+     */
+    public void beginFrame() {
+        frame++;
+        if (focusCamera != null) {
+            focus.set(focusCamera.getLocation());
+        } else if (focusEntity != null) {
+            focusEntity.getPosition(focus);
+        }
+    }
+
+    /**
+     * Give a newly added entity its phase offset
+     */
+    void assignPhase(Entity entity) {
+        entity.updatePhase = nextPhase++;
+        entity.pendingUpdateTime = 0f;
+    }
+
+    /**
+     * Accumulate a frame for an entity
+     * @return The time to pass to update() if the entity ticks this frame,
+     *         or a negative value if it is skipped
+     */
+    public float advance(Entity entity, TransformStore transforms, int index, float tpf) {
+        float elapsed = entity.pendingUpdateTime + tpf;
+        int interval = getInterval(entity.getUpdatePriority(), transforms, index);
+
+        // Intervals are powers of two, so the phase test is a mask
+        if (((frame + entity.updatePhase) & (interval - 1)) != 0) {
+            entity.pendingUpdateTime = elapsed;
+            return -1f;
+        }
+        entity.pendingUpdateTime = 0f;
+        return elapsed;
+    }
+
+    /**
+     * Get the tick interval for an entity slot
+     */
+    public int getInterval(UpdatePriority priority, TransformStore transforms, int index) {
+        switch (priority) {
+            case ALWAYS:
+                return NEAR_INTERVAL;
+            case LOW:
+                return MID_INTERVAL;
+            case BACKGROUND:
+                return FAR_INTERVAL;
+            default:
+                break;
+        }
+
+        float[] positions = transforms.getPositions();
+        int v = index * TransformStore.STRIDE;
+        float dx = positions[v] - focus.x;
+        float dy = positions[v + 1] - focus.y;
+        float dz = positions[v + 2] - focus.z;
+        float distanceSquared = dx * dx + dy * dy + dz * dz;
+
+        if (distanceSquared <= nearDistanceSquared) {
+            return NEAR_INTERVAL;
+        }
+        return distanceSquared <= farDistanceSquared ? MID_INTERVAL : FAR_INTERVAL;
+    }
+
+    public long getFrame() {
+        return frame;
+    }
+}
@@ -0,0 +1,290 @@
+package com.example.physics;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.Map;
+
+import com.jme3.bullet.collision.PhysicsCollisionObject;
+import com.jme3.bullet.objects.PhysicsRigidBody;
+import com.jme3.scene.Spatial;
+
+/**
+ * Registry of physics bodies addressed by generational integer handles.
+ *
+ * Bodies, visuals, ids and masses live in parallel arrays indexed by the low
+ * bits of a handle. The high bits hold a generation counter that is bumped
+ * when a slot is released, so a stale handle is rejected instead of silently
+ * addressing whatever body reused its slot. Released slots are recycled, so
+ * slot indices stay dense. String ids are optional and only kept for the
+ * compatibility API.
+ */
+public class BodyRegistry {
+
+    public static final int INVALID_HANDLE = -1;
+
+    private static final int INDEX_BITS = 20;
+    private static final int INDEX_MASK = (1 << INDEX_BITS) - 1;
+    // Generation uses the remaining bits below the sign bit so handles stay positive
+    private static final int GENERATION_MASK = (1 << (31 - INDEX_BITS)) - 1;
+    public static final int MAX_BODIES = 1 << INDEX_BITS;
+
+    private static final int INITIAL_CAPACITY = 64;
+
+    private PhysicsRigidBody[] bodies;
+    private Spatial[] visuals;
+    private String[] ids;
+    private float[] masses;
+    private byte[] shapeTypes;
+    private int[] generations;
+    private int[] freeSlots;
+    private int freeCount;
+    private int highWaterMark;
+    private int count;
+
+    private final Map<String, Integer> idToHandle;
+    private final Map<PhysicsCollisionObject, Integer> bodyToHandle;
+
+    public BodyRegistry() {
+        this.bodies = new PhysicsRigidBody[INITIAL_CAPACITY];
+        this.visuals = new Spatial[INITIAL_CAPACITY];
+        this.ids = new String[INITIAL_CAPACITY];
+        this.masses = new float[INITIAL_CAPACITY];
+        this.shapeTypes = new byte[INITIAL_CAPACITY];
+        this.generations = new int[INITIAL_CAPACITY];
+        this.freeSlots = new int[INITIAL_CAPACITY];
+        this.idToHandle = new HashMap<>();
+        this.bodyToHandle = new IdentityHashMap<>();
+    }
+
+    /**
+     * Register a body and return its handle
+     * @param id Optional string id (may be null for handle-only bodies)
+     * @param body The physics body
+     * @param visual Optional visual spatial synced with the body
+     */
+    public int register(String id, PhysicsRigidBody body, Spatial visual) {
+        if (body == null) {
+            throw new IllegalArgumentException("Cannot register a null body");
+        }
+
+        int index;
+        if (freeCount > 0) {
+            index = freeSlots[--freeCount];
+        } else {
+            if (highWaterMark == MAX_BODIES) {
+                throw new IllegalStateException("Body registry is full (" + MAX_BODIES + " bodies)");
+            }
+            if (highWaterMark == bodies.length) {
+                grow();
+            }
+            index = highWaterMark++;
+        }
+
+        bodies[index] = body;
+        visuals[index] = visual;
+        ids[index] = id;
+        masses[index] = body.getMass();
+        shapeTypes[index] = (byte) ShapeType.of(body.getCollisionShape()).ordinal();
+        count++;
+
+        int handle = toHandle(index, generations[index]);
+        bodyToHandle.put(body, handle);
+        if (id != null) {
+            idToHandle.put(id, handle);
+        }
+        return handle;
+    }
+
+    /**
+     * Release a handle. Returns false if the handle was already stale.
+     */
+    public boolean release(int handle) {
+        if (!isValid(handle)) {
+            return false;
+        }
+        int index = indexOf(handle);
+
+        bodyToHandle.remove(bodies[index]);
+        String id = ids[index];
+        if (id != null) {
+            // Only drop the id if it was not re-registered to a newer body
+            idToHandle.remove(id, handle);
+        }
+
+        bodies[index] = null;
+        visuals[index] = null;
+        ids[index] = null;
+        masses[index] = 0f;
+        generations[index] = (generations[index] + 1) & GENERATION_MASK;
+        freeSlots[freeCount++] = index;
+        count--;
+        return true;
+    }
+
+    /**
+     * Check if a handle still refers to a live body
+     */
+    public boolean isValid(int handle) {
+        if (handle < 0) {
+            return false;
+        }
+        int index = indexOf(handle);
+        return index < highWaterMark
+                && bodies[index] != null
+                && generations[index] == generationOf(handle);
+    }
+
+    public PhysicsRigidBody getBody(int handle) {
+        return isValid(handle) ? bodies[indexOf(handle)] : null;
+    }
+
+    public Spatial getVisual(int handle) {
+        return isValid(handle) ? visuals[indexOf(handle)] : null;
+    }
+
+    public String getId(int handle) {
+        return isValid(handle) ? ids[indexOf(handle)] : null;
+    }
+
+    public float getMass(int handle) {
+        return isValid(handle) ? masses[indexOf(handle)] : 0f;
+    }
+
+    /**
+     * Get the ShapeType ordinal computed when the body was registered
+     */
+    public int getShapeType(int handle) {
+        return isValid(handle) ? shapeTypes[indexOf(handle)] : ShapeType.OTHER.ordinal();
+    }
+
+    /**
+     * Recompute the shape type after a body's collision shape was replaced
+     */
+    public void refreshShapeType(int handle) {
+        if (isValid(handle)) {
+            int index = indexOf(handle);
+            shapeTypes[index] = (byte) ShapeType.of(bodies[index].getCollisionShape()).ordinal();
+        }
+    }
+
+    /**
+     * Get the handle registered for a string id
+     */
+    public int getHandle(String id) {
+        if (id == null) {
+            return INVALID_HANDLE;
+        }
+        Integer handle = idToHandle.get(id);
+        return handle != null ? handle : INVALID_HANDLE;
+    }
+
+    /**
+     * Get the handle registered for a collision object (identity lookup)
+     */
+    public int getHandle(PhysicsCollisionObject body) {
+        if (body == null) {
+            return INVALID_HANDLE;
+        }
+        Integer handle = bodyToHandle.get(body);
+        return handle != null ? handle : INVALID_HANDLE;
+    }
+
+    /**
+     * Get the number of live bodies
+     */
+    public int size() {
+        return count;
+    }
+
+    /**
+     * Get the number of slots ever used. Slots below this index can be
+     * iterated with getBodyAt / getHandleAt; released slots return null or
+     * INVALID_HANDLE.
+     */
+    public int getHighWaterMark() {
+        return highWaterMark;
+    }
+
+    public PhysicsRigidBody getBodyAt(int index) {
+        return bodies[index];
+    }
+
+    public Spatial getVisualAt(int index) {
+        return visuals[index];
+    }
+
+    public float getMassAt(int index) {
+        return masses[index];
+    }
+
+    public int getShapeTypeAt(int index) {
+        return shapeTypes[index];
+    }
+
+    public int getHandleAt(int index) {
+        return bodies[index] != null ? toHandle(index, generations[index]) : INVALID_HANDLE;
+    }
+
+    /**
+     * Remove all bodies. Generations are bumped so old handles stay invalid.
+     */
+    public void clear() {
+        for (int i = 0; i < highWaterMark; i++) {
+            if (bodies[i] != null) {
+                release(toHandle(i, generations[i]));
+            }
+        }
+    }
+
+    /**
+     * Pack two handles into an order-independent pair key, e.g. for per-pair
+     * caches. Handles include their generation, so a recycled slot never
+     * aliases the pair of the body that used it before.
+     */
+    public static long pairKey(int handleA, int handleB) {
+        int low = Math.min(handleA, handleB);
+        int high = Math.max(handleA, handleB);
+        return ((long) low << 32) | high;
+    }
+
+    /**
+     * Get the lower handle of a pair key
+     */
+    public static int pairLow(long pairKey) {
+        return (int) (pairKey >>> 32);
+    }
+
+    /**
+     * Get the higher handle of a pair key
+     */
+    public static int pairHigh(long pairKey) {
+        return (int) pairKey;
+    }
+
+    /**
+     * Get the slot index encoded in a handle
+     */
+    public static int indexOf(int handle) {
+        return handle & INDEX_MASK;
+    }
+
+    private static int generationOf(int handle) {
+        return (handle >>> INDEX_BITS) & GENERATION_MASK;
+    }
+
+    private static int toHandle(int index, int generation) {
+        return (generation << INDEX_BITS) | index;
+    }
+
+    private void grow() {
+        int capacity = Math.min(bodies.length * 2, MAX_BODIES);
+        bodies = Arrays.copyOf(bodies, capacity);
+        visuals = Arrays.copyOf(visuals, capacity);
+        ids = Arrays.copyOf(ids, capacity);
+        masses = Arrays.copyOf(masses, capacity);
+        shapeTypes = Arrays.copyOf(shapeTypes, capacity);
+        generations = Arrays.copyOf(generations, capacity);
+        freeSlots = Arrays.copyOf(freeSlots, capacity);
+    }
+}
@@ -0,0 +1,118 @@
+package com.example.physics;
+
+import com.example.util.LongIntMap;
+import com.jme3.bullet.collision.PhysicsCollisionEvent;
+import com.jme3.bullet.objects.PhysicsRigidBody;
+
+/**
+ * Preallocated buffer of pooled CollisionInfo records for one batch of
+ * collision events. Events are deduplicated per body pair: a pair reported
+ * by several contact points or substeps keeps only its strongest contact.
+ * When the buffer is full further new pairs are dropped and counted.
+ *
+ * PhysicsWorld flushes the queue once per frame, so a batch covers all
+ * physics steps of the previous frame, not a single step. Headless worlds
+ * stepped one step per frame get per-step batches.
+ */
+public class CollisionEventQueue {
+
+    public static final int DEFAULT_CAPACITY = 1024;
+
+    private final CollisionInfo[] events;
+    private final LongIntMap pairIndex;
+    private int count;
+    private long droppedCount;
+
+    public CollisionEventQueue() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    public CollisionEventQueue(int capacity) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("Capacity must be positive: " + capacity);
+        }
+        this.events = new CollisionInfo[capacity];
+        for (int i = 0; i < capacity; i++) {
+            events[i] = new CollisionInfo();
+        }
+        this.pairIndex = new LongIntMap(capacity);
+    }
+
+    /**
+     * Record an event for a pair of registered bodies. Returns false if the
+     * event was dropped because the buffer is full.
+     */
+    public boolean record(int handleA, int handleB, PhysicsRigidBody bodyA, PhysicsRigidBody bodyB,
+            PhysicsCollisionEvent event) {
+        long key = BodyRegistry.pairKey(handleA, handleB);
+        float impulse = event.getAppliedImpulse();
+
+        int existing = pairIndex.get(key, -1);
+        if (existing >= 0) {
+            // Keep only the strongest contact of the pair
+            if (impulse > events[existing].getAppliedImpulse()) {
+                copy(events[existing], handleA, handleB, bodyA, bodyB, event);
+            }
+            return true;
+        }
+
+        if (count == events.length) {
+            droppedCount++;
+            return false;
+        }
+
+        copy(events[count], handleA, handleB, bodyA, bodyB, event);
+        pairIndex.put(key, count);
+        count++;
+        return true;
+    }
+
+    private void copy(CollisionInfo info, int handleA, int handleB,
+            PhysicsRigidBody bodyA, PhysicsRigidBody bodyB, PhysicsCollisionEvent event) {
+        info.set(handleA, handleB, bodyA, bodyB,
+                event.getAppliedImpulse(),
+                event.getDistance1(),
+                event.getPositionWorldOnA(),
+                event.getPositionWorldOnB(),
+                event.getNormalWorldOnB());
+    }
+
+    /**
+     * Get the number of buffered events
+     */
+    public int size() {
+        return count;
+    }
+
+    /**
+     * Get a buffered event. The record is reused after clear().
+     */
+    public CollisionInfo get(int index) {
+        if (index >= count) {
+            throw new IndexOutOfBoundsException("Index " + index + " >= size " + count);
+        }
+        return events[index];
+    }
+
+    public int getCapacity() {
+        return events.length;
+    }
+
+    /**
+     * Get the total number of events dropped because the buffer was full
+     */
+    public long getDroppedCount() {
+        return droppedCount;
+    }
+
+    /**
+     * Empty the buffer so its records can be reused for the next batch
+     */
+    public void clear() {
+        for (int i = 0; i < count; i++) {
+            events[i].reset();
+        }
+        count = 0;
+        pairIndex.clear();
+    }
+}
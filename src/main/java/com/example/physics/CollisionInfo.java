@@ -4,14 +4,18 @@ import com.jme3.bullet.objects.PhysicsRigidBody;
 import com.jme3.math.Vector3f;
 
 /**
- * Contains detailed information about a collision event
+ * Contains detailed information about a collision event.
+ * Instances handed out by a CollisionEventQueue are pooled and reused for
+ * the next batch, so copy out anything that must outlive the batch.
  */
 public class CollisionInfo {
     
-    private final PhysicsRigidBody bodyA;
-    private final PhysicsRigidBody bodyB;
-    private final float appliedImpulse;
-    private final float distance;
+    private PhysicsRigidBody bodyA;
+    private PhysicsRigidBody bodyB;
+    private int handleA = BodyRegistry.INVALID_HANDLE;
+    private int handleB = BodyRegistry.INVALID_HANDLE;
+    private float appliedImpulse;
+    private float distance;
     private final Vector3f positionWorldOnA;
     private final Vector3f positionWorldOnB;
     private final Vector3f normalWorldOnB;
@@ -29,6 +33,42 @@ public class CollisionInfo {
         this.normalWorldOnB = normalWorldOnB.clone();
     }
     
+    /**
+     * Create an empty pooled record
+     */
+    CollisionInfo() {
+        this.positionWorldOnA = new Vector3f();
+        this.positionWorldOnB = new Vector3f();
+        this.normalWorldOnB = new Vector3f();
+    }
+    
+    /**
+     * Overwrite this pooled record, copying the vectors into its own storage
+     */
+    void set(int handleA, int handleB, PhysicsRigidBody bodyA, PhysicsRigidBody bodyB,
+            float appliedImpulse, float distance,
+            Vector3f positionWorldOnA, Vector3f positionWorldOnB, Vector3f normalWorldOnB) {
+        this.handleA = handleA;
+        this.handleB = handleB;
+        this.bodyA = bodyA;
+        this.bodyB = bodyB;
+        this.appliedImpulse = appliedImpulse;
+        this.distance = distance;
+        this.positionWorldOnA.set(positionWorldOnA);
+        this.positionWorldOnB.set(positionWorldOnB);
+        this.normalWorldOnB.set(normalWorldOnB);
+    }
+    
+    /**
+     * Drop body references so a pooled record does not keep bodies alive
+     */
+    void reset() {
+        this.bodyA = null;
+        this.bodyB = null;
+        this.handleA = BodyRegistry.INVALID_HANDLE;
+        this.handleB = BodyRegistry.INVALID_HANDLE;
+    }
+    
     public PhysicsRigidBody getBodyA() {
         return bodyA;
     }
@@ -37,6 +77,20 @@ public class CollisionInfo {
         return bodyB;
     }
     
+    /**
+     * Get the registry handle of body A (INVALID_HANDLE if not recorded)
+     */
+    public int getHandleA() {
+        return handleA;
+    }
+    
+    /**
+     * Get the registry handle of body B (INVALID_HANDLE if not recorded)
+     */
+    public int getHandleB() {
+        return handleB;
+    }
+    
     public float getAppliedImpulse() {
         return appliedImpulse;
     }
@@ -49,14 +103,26 @@ public class CollisionInfo {
         return positionWorldOnA.clone();
     }
     
+    public Vector3f getPositionWorldOnA(Vector3f store) {
+        return store.set(positionWorldOnA);
+    }
+    
     public Vector3f getPositionWorldOnB() {
         return positionWorldOnB.clone();
     }
     
+    public Vector3f getPositionWorldOnB(Vector3f store) {
+        return store.set(positionWorldOnB);
+    }
+    
     public Vector3f getNormalWorldOnB() {
         return normalWorldOnB.clone();
     }
     
+    public Vector3f getNormalWorldOnB(Vector3f store) {
+        return store.set(normalWorldOnB);
+    }
+    
     /**
      * Get the collision point (average of both contact points)
      */
@@ -1,6 +1,8 @@
 package com.example.physics;
 
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.function.BiConsumer;
 
@@ -15,26 +17,71 @@ import com.jme3.math.Vector3f;
  */
 public class CollisionListener implements PhysicsCollisionListener {
     
+    /**
+     * Receives all buffered collision events of one batch at once
+     */
+    public interface CollisionBatchHandler {
+        
+        void onCollisionBatch(CollisionEventQueue events);
+    }
+    
     private Map<String, BiConsumer<PhysicsRigidBody, PhysicsRigidBody>> collisionHandlers;
-    private Map<PhysicsRigidBody, String> bodyToIdMap;
+    private final BodyRegistry bodies;
+    private final boolean ownsRegistry;
+    
+    // Dispatch table indexed by [shapeTypeA][shapeTypeB], rebuilt when handlers change
+    private final BiConsumer<PhysicsRigidBody, PhysicsRigidBody>[][] handlerTable;
+    private final boolean[][] swappedTable;
+    private BiConsumer<PhysicsRigidBody, PhysicsRigidBody> anyHandler;
+    
+    // Buffered mode: events are recorded during the step and delivered by flushEvents()
+    private CollisionEventQueue eventQueue;
+    private final List<CollisionBatchHandler> batchHandlers;
+    
+    // Begin / persist / end tracking, only fed while it has listeners
+    private final ContactTracker contactTracker;
+    
+    // Reusable temporaries for default collision handling
+    private final Vector3f tempVelocityA = new Vector3f();
+    private final Vector3f tempVelocityB = new Vector3f();
     
     public CollisionListener() {
+        this(new BodyRegistry(), true);
+    }
+    
+    /**
+     * Create a listener that tracks the bodies of a shared registry, so that
+     * bodies registered with the PhysicsEngine need no separate registration
+     */
+    public CollisionListener(BodyRegistry bodies) {
+        this(bodies, false);
+    }
+    
+    @SuppressWarnings("unchecked")
+    private CollisionListener(BodyRegistry bodies, boolean ownsRegistry) {
         this.collisionHandlers = new HashMap<>();
-        this.bodyToIdMap = new HashMap<>();
+        this.bodies = bodies;
+        this.ownsRegistry = ownsRegistry;
+        this.handlerTable = new BiConsumer[ShapeType.count()][ShapeType.count()];
+        this.swappedTable = new boolean[ShapeType.count()][ShapeType.count()];
+        this.batchHandlers = new ArrayList<>();
+        this.contactTracker = new ContactTracker(bodies);
     }
     
     /**
      * Register a physics body with an ID for collision tracking
      */
     public void registerBody(String id, PhysicsRigidBody body) {
-        bodyToIdMap.put(body, id);
+        if (bodies.getHandle(body) == BodyRegistry.INVALID_HANDLE) {
+            bodies.register(id, body, null);
+        }
     }
     
     /**
      * Unregister a physics body
      */
     public void unregisterBody(PhysicsRigidBody body) {
-        bodyToIdMap.remove(body);
+        bodies.release(bodies.getHandle(body));
     }
     
     /**
@@ -44,6 +91,14 @@ public class CollisionListener implements PhysicsCollisionListener {
      */
     public void addCollisionHandler(String key, BiConsumer<PhysicsRigidBody, PhysicsRigidBody> handler) {
         collisionHandlers.put(key, handler);
+        rebuildHandlerTable();
+    }
+    
+    /**
+     * Add a collision handler for a pair of shape types
+     */
+    public void addCollisionHandler(ShapeType typeA, ShapeType typeB, BiConsumer<PhysicsRigidBody, PhysicsRigidBody> handler) {
+        addCollisionHandler(typeA.getKey() + "-" + typeB.getKey(), handler);
     }
     
     /**
@@ -51,80 +106,197 @@ public class CollisionListener implements PhysicsCollisionListener {
      */
     public void removeCollisionHandler(String key) {
         collisionHandlers.remove(key);
+        rebuildHandlerTable();
+    }
+    
+    /**
+     * Resolve the string-keyed handlers into the (typeA, typeB) dispatch table.
+     * An exact "a-b" key wins over a reversed "b-a" key, which is called with
+     * the bodies swapped.
+     */
+    private void rebuildHandlerTable() {
+        int typeCount = ShapeType.count();
+        for (int a = 0; a < typeCount; a++) {
+            String keyA = ShapeType.fromOrdinal(a).getKey();
+            for (int b = 0; b < typeCount; b++) {
+                String keyB = ShapeType.fromOrdinal(b).getKey();
+                BiConsumer<PhysicsRigidBody, PhysicsRigidBody> handler = collisionHandlers.get(keyA + "-" + keyB);
+                boolean swapped = false;
+                if (handler == null) {
+                    handler = collisionHandlers.get(keyB + "-" + keyA);
+                    swapped = handler != null;
+                }
+                handlerTable[a][b] = handler;
+                swappedTable[a][b] = swapped;
+            }
+        }
+        anyHandler = collisionHandlers.get("any-any");
     }
     
     @Override
     public void collision(PhysicsCollisionEvent event) {
-        PhysicsRigidBody bodyA = (PhysicsRigidBody) event.getObjectA();
-        PhysicsRigidBody bodyB = (PhysicsRigidBody) event.getObjectB();
+        // Only registered rigid bodies take part; characters and ghosts are skipped
+        int handleA = bodies.getHandle(event.getObjectA());
+        int handleB = bodies.getHandle(event.getObjectB());
         
-        String idA = bodyToIdMap.get(bodyA);
-        String idB = bodyToIdMap.get(bodyB);
+        if (handleA == BodyRegistry.INVALID_HANDLE || handleB == BodyRegistry.INVALID_HANDLE) {
+            return;
+        }
         
-        if (idA != null && idB != null) {
-            handleCollision(bodyA, bodyB, idA, idB);
+        if (contactTracker.hasListeners()) {
+            contactTracker.recordContact(handleA, handleB);
+        }
+        
+        if (eventQueue != null) {
+            eventQueue.record(handleA, handleB, bodies.getBody(handleA), bodies.getBody(handleB), event);
+        } else {
+            handleCollision(handleA, handleB);
         }
     }
     
     /**
-     * Handle collision between two bodies
+     * Enable or disable buffered delivery. When buffered, collision events
+     * are recorded into a pooled queue (one per body pair per frame, across
+     * substeps) and handlers run in one batch from flushEvents(), outside the
+     * physics step, in the frame after the step that produced them.
+     */
+    public void setBuffered(boolean buffered) {
+        setBuffered(buffered, CollisionEventQueue.DEFAULT_CAPACITY);
+    }
+    
+    /**
+     * Enable or disable buffered delivery with a given queue capacity
+     */
+    public void setBuffered(boolean buffered, int capacity) {
+        if (eventQueue != null) {
+            flushEvents();
+        }
+        eventQueue = buffered ? new CollisionEventQueue(capacity) : null;
+    }
+    
+    public boolean isBuffered() {
+        return eventQueue != null;
+    }
+    
+    /**
+     * Get the buffered event queue (null when not buffered)
+     */
+    public CollisionEventQueue getEventQueue() {
+        return eventQueue;
+    }
+    
+    /**
+     * Add a handler that receives each buffered batch as a whole
      */
-    private void handleCollision(PhysicsRigidBody bodyA, PhysicsRigidBody bodyB, String idA, String idB) {
-        // Get collision shape types
-        String shapeA = getShapeType(bodyA);
-        String shapeB = getShapeType(bodyB);
+    public void addBatchHandler(CollisionBatchHandler handler) {
+        batchHandlers.add(handler);
+    }
+    
+    public void removeBatchHandler(CollisionBatchHandler handler) {
+        batchHandlers.remove(handler);
+    }
+    
+    /**
+     * Deliver buffered events to batch handlers and then to the per-pair
+     * handlers, and empty the queue. Called once per frame by PhysicsWorld;
+     * does nothing when not buffered.
+     */
+    public void flushEvents() {
+        if (eventQueue == null || eventQueue.size() == 0) {
+            return;
+        }
         
-        // Create collision keys
-        String key1 = shapeA + "-" + shapeB;
-        String key2 = shapeB + "-" + shapeA;
+        for (int i = 0; i < batchHandlers.size(); i++) {
+            batchHandlers.get(i).onCollisionBatch(eventQueue);
+        }
         
-        // Try to find a specific handler
-        BiConsumer<PhysicsRigidBody, PhysicsRigidBody> handler = collisionHandlers.get(key1);
-        if (handler != null) {
-            handler.accept(bodyA, bodyB);
-            return;
+        for (int i = 0; i < eventQueue.size(); i++) {
+            CollisionInfo info = eventQueue.get(i);
+            // Skip pairs whose bodies were removed since the event was recorded
+            if (bodies.isValid(info.getHandleA()) && bodies.isValid(info.getHandleB())) {
+                handleCollision(info.getHandleA(), info.getHandleB());
+            }
         }
         
-        handler = collisionHandlers.get(key2);
+        eventQueue.clear();
+    }
+    
+    /**
+     * Add a listener for contact begin / persist / end events
+     */
+    public void addContactListener(ContactTracker.ContactListener listener) {
+        contactTracker.addContactListener(listener);
+    }
+    
+    public void removeContactListener(ContactTracker.ContactListener listener) {
+        contactTracker.removeContactListener(listener);
+    }
+    
+    /**
+     * Get the contact pair cache, e.g. to throttle persist events
+     */
+    public ContactTracker getContactTracker() {
+        return contactTracker;
+    }
+    
+    /**
+     * Close the current frame of contact tracking and emit lifecycle events.
+     * Called once per frame by PhysicsWorld.
+     * @param stepCount Number of physics steps completed so far
+     */
+    public void updateContacts(long stepCount) {
+        if (contactTracker.hasListeners() || contactTracker.getContactCount() > 0) {
+            contactTracker.update(stepCount);
+        }
+    }
+    
+    /**
+     * Handle collision between two bodies
+     */
+    private void handleCollision(int handleA, int handleB) {
+        PhysicsRigidBody bodyA = bodies.getBody(handleA);
+        PhysicsRigidBody bodyB = bodies.getBody(handleB);
+        int typeA = bodies.getShapeType(handleA);
+        int typeB = bodies.getShapeType(handleB);
+        
+        // Try to find a specific handler
+        BiConsumer<PhysicsRigidBody, PhysicsRigidBody> handler = handlerTable[typeA][typeB];
         if (handler != null) {
-            handler.accept(bodyB, bodyA);
+            if (swappedTable[typeA][typeB]) {
+                handler.accept(bodyB, bodyA);
+            } else {
+                handler.accept(bodyA, bodyB);
+            }
             return;
         }
         
         // Try generic handlers
-        handler = collisionHandlers.get("any-any");
-        if (handler != null) {
-            handler.accept(bodyA, bodyB);
+        if (anyHandler != null) {
+            anyHandler.accept(bodyA, bodyB);
         }
         
         // Default collision handling
-        handleDefaultCollision(bodyA, bodyB, idA, idB);
-    }
-    
-    /**
-     * Get the shape type name from a physics body
-     */
-    private String getShapeType(PhysicsRigidBody body) {
-        String className = body.getCollisionShape().getClass().getSimpleName();
-        return className.toLowerCase().replace("collisionshape", "");
+        handleDefaultCollision(bodyA, bodyB, bodies.getId(handleA), bodies.getId(handleB));
     }
     
     /**
-     * Default collision handling - can be overridden
+     * Default collision handling - can be overridden. Ids are null for
+     * bodies registered by handle only.
      */
     protected void handleDefaultCollision(PhysicsRigidBody bodyA, PhysicsRigidBody bodyB, String idA, String idB) {
         // Default behavior - apply some bounce effect
         float restitution = 0.5f;
         
-        // Calculate collision normal and apply impulse
-        Vector3f relativeVelocity = bodyA.getLinearVelocity().subtract(bodyB.getLinearVelocity());
-        Vector3f impulse = relativeVelocity.mult(-restitution * 0.1f);
+        // Calculate collision normal and apply impulse, reusing temporaries
+        Vector3f impulse = bodyA.getLinearVelocity(tempVelocityA)
+                .subtractLocal(bodyB.getLinearVelocity(tempVelocityB))
+                .multLocal(-restitution * 0.1f);
         
         if (bodyA.getMass() > 0) {
             bodyA.applyImpulse(impulse, Vector3f.ZERO);
         }
         if (bodyB.getMass() > 0) {
-            bodyB.applyImpulse(impulse.negate(), Vector3f.ZERO);
+            bodyB.applyImpulse(impulse.negateLocal(), Vector3f.ZERO);
         }
     }
     
@@ -144,10 +316,19 @@ public class CollisionListener implements PhysicsCollisionListener {
     }
     
     /**
-     * Clear all handlers and registered bodies
+     * Clear all handlers, and the registered bodies unless the registry is
+     * shared with a PhysicsEngine
      */
     public void clear() {
         collisionHandlers.clear();
-        bodyToIdMap.clear();
+        rebuildHandlerTable();
+        batchHandlers.clear();
+        contactTracker.clear();
+        if (eventQueue != null) {
+            eventQueue.clear();
+        }
+        if (ownsRegistry) {
+            bodies.clear();
+        }
     }
 }
\ No newline at end of file
@@ -0,0 +1,211 @@
+package com.example.physics;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import com.example.util.LongIntMap;
+import com.jme3.bullet.objects.PhysicsRigidBody;
+
+/**
+ * Tracks which body pairs are in contact and turns raw per-step collision
+ * callbacks into begin / persist / end events.
+ *
+ * Pairs are cached by packed handle pair. Contacts seen during a frame are
+ * recorded, and update() closes the frame: new pairs begin, pairs seen again
+ * persist (optionally throttled), and pairs no longer reported end.
+ *
+ * A pair only ends after it was missed in two consecutive frames in which
+ * physics stepped, so a contact that drops out of a single step does not
+ * end and begin again; frames without a step report nothing. Pairs where
+ * both bodies sleep are kept, since Bullet stops reporting resting contacts
+ * once an island deactivates.
+ */
+public class ContactTracker {
+
+    /**
+     * Receives contact lifecycle events. Bodies passed to onContactEnd may be
+     * null if they were removed from the world.
+     */
+    public interface ContactListener {
+
+        default void onContactBegin(PhysicsRigidBody bodyA, PhysicsRigidBody bodyB) {
+        }
+
+        default void onContactPersist(PhysicsRigidBody bodyA, PhysicsRigidBody bodyB) {
+        }
+
+        default void onContactEnd(PhysicsRigidBody bodyA, PhysicsRigidBody bodyB) {
+        }
+    }
+
+    private static final int MISSES_BEFORE_END = 2;
+
+    private final BodyRegistry bodies;
+    private final List<ContactListener> listeners;
+    private final LongIntMap pairSlots;
+
+    // Dense per-pair state, indexed by slot
+    private long[] pairKeys;
+    private boolean[] seen;
+    private boolean[] begun;
+    private int[] misses;
+    private int[] persistCounters;
+    private int pairCount;
+
+    private int persistInterval = 1;
+    private long lastStepCount = -1;
+
+    public ContactTracker(BodyRegistry bodies) {
+        this.bodies = bodies;
+        this.listeners = new ArrayList<>();
+        this.pairSlots = new LongIntMap(256);
+        this.pairKeys = new long[128];
+        this.seen = new boolean[128];
+        this.begun = new boolean[128];
+        this.misses = new int[128];
+        this.persistCounters = new int[128];
+    }
+
+    public void addContactListener(ContactListener listener) {
+        listeners.add(listener);
+    }
+
+    public void removeContactListener(ContactListener listener) {
+        listeners.remove(listener);
+    }
+
+    public boolean hasListeners() {
+        return !listeners.isEmpty();
+    }
+
+    /**
+     * Emit onContactPersist every n-th frame a pair stays in contact.
+     * 1 emits every frame, 0 disables persist events.
+     */
+    public void setPersistInterval(int persistInterval) {
+        this.persistInterval = Math.max(0, persistInterval);
+    }
+
+    public int getPersistInterval() {
+        return persistInterval;
+    }
+
+    /**
+     * Record that two registered bodies touched during the current frame
+     */
+    public void recordContact(int handleA, int handleB) {
+        long key = BodyRegistry.pairKey(handleA, handleB);
+        int slot = pairSlots.get(key, -1);
+        if (slot < 0) {
+            slot = addPair(key);
+        }
+        seen[slot] = true;
+    }
+
+    /**
+     * Close the current frame and emit lifecycle events
+     * @param stepCount Number of physics steps completed so far
+     */
+    public void update(long stepCount) {
+        boolean stepped = stepCount != lastStepCount;
+        lastStepCount = stepCount;
+
+        // Iterate backwards so swap-removal never skips a pair
+        for (int slot = pairCount - 1; slot >= 0; slot--) {
+            long key = pairKeys[slot];
+            int handleA = BodyRegistry.pairLow(key);
+            int handleB = BodyRegistry.pairHigh(key);
+            PhysicsRigidBody bodyA = bodies.getBody(handleA);
+            PhysicsRigidBody bodyB = bodies.getBody(handleB);
+
+            if (bodyA == null || bodyB == null) {
+                endPair(slot, bodyA, bodyB);
+                continue;
+            }
+
+            if (seen[slot]) {
+                seen[slot] = false;
+                misses[slot] = 0;
+                if (!begun[slot]) {
+                    begun[slot] = true;
+                    persistCounters[slot] = 0;
+                    for (int i = 0; i < listeners.size(); i++) {
+                        listeners.get(i).onContactBegin(bodyA, bodyB);
+                    }
+                } else if (persistInterval > 0 && ++persistCounters[slot] >= persistInterval) {
+                    persistCounters[slot] = 0;
+                    for (int i = 0; i < listeners.size(); i++) {
+                        listeners.get(i).onContactPersist(bodyA, bodyB);
+                    }
+                }
+            } else if (stepped && (bodyA.isActive() || bodyB.isActive())) {
+                if (++misses[slot] >= MISSES_BEFORE_END) {
+                    endPair(slot, bodyA, bodyB);
+                }
+            }
+        }
+    }
+
+    /**
+     * Get the number of pairs currently tracked
+     */
+    public int getContactCount() {
+        return pairCount;
+    }
+
+    /**
+     * Check if two bodies are currently in contact
+     */
+    public boolean isInContact(int handleA, int handleB) {
+        int slot = pairSlots.get(BodyRegistry.pairKey(handleA, handleB), -1);
+        return slot >= 0 && begun[slot];
+    }
+
+    /**
+     * Forget all pairs without emitting end events
+     */
+    public void clear() {
+        pairSlots.clear();
+        pairCount = 0;
+    }
+
+    private int addPair(long key) {
+        if (pairCount == pairKeys.length) {
+            int capacity = pairKeys.length * 2;
+            pairKeys = Arrays.copyOf(pairKeys, capacity);
+            seen = Arrays.copyOf(seen, capacity);
+            begun = Arrays.copyOf(begun, capacity);
+            misses = Arrays.copyOf(misses, capacity);
+            persistCounters = Arrays.copyOf(persistCounters, capacity);
+        }
+        int slot = pairCount++;
+        pairKeys[slot] = key;
+        seen[slot] = false;
+        begun[slot] = false;
+        misses[slot] = 0;
+        persistCounters[slot] = 0;
+        pairSlots.put(key, slot);
+        return slot;
+    }
+
+    private void endPair(int slot, PhysicsRigidBody bodyA, PhysicsRigidBody bodyB) {
+        if (begun[slot]) {
+            for (int i = 0; i < listeners.size(); i++) {
+                listeners.get(i).onContactEnd(bodyA, bodyB);
+            }
+        }
+        pairSlots.remove(pairKeys[slot], -1);
+
+        // Move the last pair into the freed slot
+        int last = --pairCount;
+        if (slot != last) {
+            pairKeys[slot] = pairKeys[last];
+            seen[slot] = seen[last];
+            begun[slot] = begun[last];
+            misses[slot] = misses[last];
+            persistCounters[slot] = persistCounters[last];
+            pairSlots.put(pairKeys[slot], slot);
+        }
+    }
+}
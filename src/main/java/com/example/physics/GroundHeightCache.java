@@ -0,0 +1,337 @@
+package com.example.physics;
+
+import java.util.Arrays;
+
+import com.bulletphysics.collision.broadphase.BroadphaseProxy;
+import com.bulletphysics.collision.dispatch.CollisionObject;
+import com.bulletphysics.collision.dispatch.CollisionWorld;
+import com.example.util.LongIntMap;
+import com.jme3.bullet.collision.PhysicsCollisionObject;
+import com.jme3.math.Vector3f;
+
+/**
+ * Caches the height of static ground on a quantized XZ grid, so repeated
+ * ground probes against terrain that never moves become hash lookups.
+ *
+ * Each cell stores the topmost static surface (registered bodies with mass
+ * 0) under its centre. A probe uses the cell as long as the probe point is
+ * above that surface; below it (under a bridge, in a cave) a real static ray
+ * is cast instead. Dynamic bodies are never cached: probes that ask for them
+ * cast one short ray that only tests dynamic bodies, down to the static
+ * ground. The whole cache is dropped when the engine's static revision
+ * changes.
+ *
+ * Heights are sampled at cell centres, so on slopes the result is off by up
+ * to half a cell times the slope. Not thread-safe; probe from the update
+ * thread between physics steps.
+ */
+public class GroundHeightCache {
+
+    public static final float DEFAULT_CELL_SIZE = 0.5f;
+    public static final float DEFAULT_PROBE_TOP = 1000f;
+    public static final float DEFAULT_PROBE_BOTTOM = -1000f;
+    public static final int DEFAULT_MAX_CELLS = 1 << 16;
+
+    private final PhysicsEngine engine;
+    private final BodyRegistry bodies;
+    private final float cellSize;
+    private final float inverseCellSize;
+    private float probeTop = DEFAULT_PROBE_TOP;
+    private float probeBottom = DEFAULT_PROBE_BOTTOM;
+    private int maxCells = DEFAULT_MAX_CELLS;
+
+    // Cell key -> slot in the dense arrays below
+    private final LongIntMap cellSlots;
+    private float[] heights;
+    private float[] normals;
+    private int[] handles;
+    private int cellCount;
+    private int revision;
+
+    private final FilteredRayCallback staticCallback;
+    private final FilteredRayCallback dynamicCallback;
+
+    // Result of the last probe
+    private float probeHeight;
+    private final Vector3f probeNormal = new Vector3f();
+    private int probeHandle = BodyRegistry.INVALID_HANDLE;
+
+    private long cacheHits;
+    private long cacheMisses;
+
+    public GroundHeightCache(PhysicsEngine engine) {
+        this(engine, DEFAULT_CELL_SIZE);
+    }
+
+    /**
+     * Create a cache with the given cell size in world units
+     */
+    public GroundHeightCache(PhysicsEngine engine, float cellSize) {
+        if (cellSize <= 0f) {
+            throw new IllegalArgumentException("Cell size must be positive: " + cellSize);
+        }
+        this.engine = engine;
+        this.bodies = engine.getBodyRegistry();
+        this.cellSize = cellSize;
+        this.inverseCellSize = 1f / cellSize;
+        this.cellSlots = new LongIntMap(1024);
+        this.heights = new float[1024];
+        this.normals = new float[1024 * 3];
+        this.handles = new int[1024];
+        this.revision = engine.getStaticRevision();
+        this.staticCallback = new FilteredRayCallback(true);
+        this.dynamicCallback = new FilteredRayCallback(false);
+    }
+
+    /**
+     * Probe for ground below a position. On success the hit is available
+     * through getProbeHeight, getProbeNormal and getProbeHandle.
+     * @param maxDistance How far below the position to look
+     * @param includeDynamic Also test dynamic bodies with a short real ray
+     * @return True if ground was found within maxDistance
+     */
+    public boolean probe(Vector3f position, float maxDistance, boolean includeDynamic) {
+        validate();
+
+        float groundY = position.y - maxDistance;
+        boolean found = false;
+
+        int slot = getCell(position.x, position.z);
+        float cachedHeight = heights[slot];
+        if (Float.isNaN(cachedHeight) || position.y >= cachedHeight - cellSize) {
+            // Cached column top is the static ground here (or there is none)
+            if (!Float.isNaN(cachedHeight) && cachedHeight >= groundY) {
+                groundY = Math.min(cachedHeight, position.y);
+                probeNormal.set(normals[slot * 3], normals[slot * 3 + 1], normals[slot * 3 + 2]);
+                probeHandle = handles[slot];
+                found = true;
+            }
+        } else if (castRay(staticCallback, position.x, position.y, position.z, groundY)) {
+            // Below the cached top, e.g. under an overhang
+            groundY = staticCallback.hitPointWorld.y;
+            setProbeHit(staticCallback);
+            found = true;
+        }
+
+        // Only dynamic bodies above the static ground can change the answer
+        if (includeDynamic && castRay(dynamicCallback, position.x, position.y, position.z, groundY)) {
+            groundY = dynamicCallback.hitPointWorld.y;
+            setProbeHit(dynamicCallback);
+            found = true;
+        }
+
+        probeHeight = found ? groundY : Float.NaN;
+        return found;
+    }
+
+    /**
+     * Get the distance from a position down to the ground, or maxDistance
+     * if there is no ground within range
+     */
+    public float getDistanceToGround(Vector3f position, float maxDistance, boolean includeDynamic) {
+        if (probe(position, maxDistance, includeDynamic)) {
+            return Math.max(0f, position.y - probeHeight);
+        }
+        return maxDistance;
+    }
+
+    /**
+     * Check if there is ground within maxDistance below a position
+     */
+    public boolean isAboveGround(Vector3f position, float maxDistance, boolean includeDynamic) {
+        return probe(position, maxDistance, includeDynamic);
+    }
+
+    /**
+     * Get the topmost static ground height of the cell containing (x, z),
+     * or NaN if the column has no static ground
+     */
+    public float getStaticGroundHeight(float x, float z) {
+        validate();
+        return heights[getCell(x, z)];
+    }
+
+    /**
+     * Get the ground height found by the last successful probe
+     */
+    public float getProbeHeight() {
+        return probeHeight;
+    }
+
+    /**
+     * Get the ground normal found by the last successful probe
+     */
+    public Vector3f getProbeNormal(Vector3f store) {
+        return store.set(probeNormal);
+    }
+
+    /**
+     * Get the handle of the body hit by the last successful probe, or
+     * BodyRegistry.INVALID_HANDLE for unregistered objects
+     */
+    public int getProbeHandle() {
+        return probeHandle;
+    }
+
+    /**
+     * Set the vertical range scanned when a cell is first sampled
+     */
+    public void setProbeRange(float bottom, float top) {
+        this.probeBottom = bottom;
+        this.probeTop = top;
+        clear();
+    }
+
+    /**
+     * Set the number of cells kept before the cache starts over
+     */
+    public void setMaxCells(int maxCells) {
+        this.maxCells = Math.max(1, maxCells);
+    }
+
+    public float getCellSize() {
+        return cellSize;
+    }
+
+    public int getCellCount() {
+        return cellCount;
+    }
+
+    public long getCacheHits() {
+        return cacheHits;
+    }
+
+    public long getCacheMisses() {
+        return cacheMisses;
+    }
+
+    /**
+     * Drop all cached cells
+     */
+    public void clear() {
+        cellSlots.clear();
+        cellCount = 0;
+    }
+
+    private void validate() {
+        int current = engine.getStaticRevision();
+        if (current != revision) {
+            revision = current;
+            clear();
+        }
+    }
+
+    /**
+     * Get the slot of the cell containing (x, z), sampling it on first use
+     */
+    private int getCell(float x, float z) {
+        int cellX = (int) Math.floor(x * inverseCellSize);
+        int cellZ = (int) Math.floor(z * inverseCellSize);
+        long key = ((long) cellX << 32) | (cellZ & 0xFFFFFFFFL);
+
+        int slot = cellSlots.get(key, -1);
+        if (slot >= 0) {
+            cacheHits++;
+            return slot;
+        }
+
+        cacheMisses++;
+        if (cellCount >= maxCells) {
+            clear();
+        }
+        slot = addCell(key);
+
+        float centerX = (cellX + 0.5f) * cellSize;
+        float centerZ = (cellZ + 0.5f) * cellSize;
+        if (castRay(staticCallback, centerX, probeTop, centerZ, probeBottom)) {
+            heights[slot] = staticCallback.hitPointWorld.y;
+            normals[slot * 3] = staticCallback.hitNormalWorld.x;
+            normals[slot * 3 + 1] = staticCallback.hitNormalWorld.y;
+            normals[slot * 3 + 2] = staticCallback.hitNormalWorld.z;
+            handles[slot] = getHitHandle(staticCallback);
+        } else {
+            heights[slot] = Float.NaN;
+            handles[slot] = BodyRegistry.INVALID_HANDLE;
+        }
+        return slot;
+    }
+
+    private int addCell(long key) {
+        if (cellCount == heights.length) {
+            int capacity = heights.length * 2;
+            heights = Arrays.copyOf(heights, capacity);
+            normals = Arrays.copyOf(normals, capacity * 3);
+            handles = Arrays.copyOf(handles, capacity);
+        }
+        int slot = cellCount++;
+        cellSlots.put(key, slot);
+        return slot;
+    }
+
+    /**
+     * Cast a vertical ray from (x, fromY, z) down to toY
+     */
+    private boolean castRay(FilteredRayCallback callback, float x, float fromY, float z, float toY) {
+        if (fromY <= toY) {
+            return false;
+        }
+        callback.rayFromWorld.set(x, fromY, z);
+        callback.rayToWorld.set(x, toY, z);
+        callback.closestHitFraction = 1f;
+        callback.collisionObject = null;
+
+        engine.getPhysicsSpace().getDynamicsWorld().rayTest(callback.rayFromWorld, callback.rayToWorld, callback);
+        return callback.collisionObject != null;
+    }
+
+    private void setProbeHit(FilteredRayCallback callback) {
+        probeNormal.set(callback.hitNormalWorld.x, callback.hitNormalWorld.y, callback.hitNormalWorld.z);
+        probeHandle = getHitHandle(callback);
+    }
+
+    private int getHitHandle(FilteredRayCallback callback) {
+        Object owner = callback.collisionObject.getUserPointer();
+        return owner instanceof PhysicsCollisionObject
+                ? bodies.getHandle((PhysicsCollisionObject) owner)
+                : BodyRegistry.INVALID_HANDLE;
+    }
+
+    /**
+     * Check if a collision object is static ground: a registered body with
+     * mass 0. Bullet flags every mass 0 rigid body as static, which makes
+     * the common dynamic case a cheap flag check.
+     */
+    private boolean isStaticGround(CollisionObject object) {
+        if (!object.isStaticObject()) {
+            return false;
+        }
+        Object owner = object.getUserPointer();
+        if (!(owner instanceof PhysicsCollisionObject)) {
+            return false;
+        }
+        int handle = bodies.getHandle((PhysicsCollisionObject) owner);
+        return handle != BodyRegistry.INVALID_HANDLE && bodies.getMass(handle) == 0f;
+    }
+
+    /**
+     * Closest-hit ray callback that only accepts static ground, or only
+     * everything else
+     */
+    private final class FilteredRayCallback extends CollisionWorld.ClosestRayResultCallback {
+
+        private final boolean acceptStatic;
+
+        FilteredRayCallback(boolean acceptStatic) {
+            super(new javax.vecmath.Vector3f(), new javax.vecmath.Vector3f());
+            this.acceptStatic = acceptStatic;
+        }
+
+        @Override
+        public boolean needsCollision(BroadphaseProxy proxy) {
+            if (!super.needsCollision(proxy)) {
+                return false;
+            }
+            return isStaticGround((CollisionObject) proxy.clientObject) == acceptStatic;
+        }
+    }
+}
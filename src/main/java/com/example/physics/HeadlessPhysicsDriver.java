@@ -0,0 +1,120 @@
+package com.example.physics;
+
+/**
+ * Drives a PhysicsWorld without an Application, LWJGL context or render loop.
+ * Steps the physics space at a fixed time step as fast as the CPU allows, for
+ * batch simulations, server-side physics and stress tests
+ */
+public class HeadlessPhysicsDriver {
+
+    public static final float DEFAULT_TIME_STEP = 1f / 60f;
+
+    private final PhysicsWorld physicsWorld;
+    private final float timeStep;
+    private boolean syncVisuals = false;
+    private long stepCount = 0;
+    private long elapsedNanos = 0;
+
+    public HeadlessPhysicsDriver() {
+        this(DEFAULT_TIME_STEP);
+    }
+
+    public HeadlessPhysicsDriver(float timeStep) {
+        if (timeStep <= 0f) {
+            throw new IllegalArgumentException("Time step must be positive: " + timeStep);
+        }
+        this.timeStep = timeStep;
+        this.physicsWorld = new PhysicsWorld();
+        physicsWorld.initializeHeadless();
+    }
+
+    /**
+     * Advance the simulation by one fixed step
+     */
+    public void step() {
+        long start = System.nanoTime();
+
+        physicsWorld.getPhysicsEngine().step(timeStep);
+
+        // Controls only copy physics transforms into spatials during the
+        // logical update, which nothing else runs without a render loop
+        if (syncVisuals) {
+            physicsWorld.getPhysicsNode().updateLogicalState(timeStep);
+        }
+        physicsWorld.update(timeStep);
+
+        stepCount++;
+        elapsedNanos += System.nanoTime() - start;
+    }
+
+    /**
+     * Advance the simulation by a number of fixed steps
+     */
+    public void run(int steps) {
+        for (int i = 0; i < steps; i++) {
+            step();
+        }
+    }
+
+    /**
+     * Advance the simulation by (at least) the given amount of simulated time
+     */
+    public void runFor(float seconds) {
+        run((int) Math.ceil(seconds / timeStep));
+    }
+
+    /**
+     * Get the physics world driven by this driver
+     */
+    public PhysicsWorld getPhysicsWorld() {
+        return physicsWorld;
+    }
+
+    public float getTimeStep() {
+        return timeStep;
+    }
+
+    public long getStepCount() {
+        return stepCount;
+    }
+
+    /**
+     * Get the total simulated time in seconds
+     */
+    public double getSimulatedTime() {
+        return stepCount * (double) timeStep;
+    }
+
+    /**
+     * Get the wall-clock time spent stepping, in seconds
+     */
+    public double getElapsedTime() {
+        return elapsedNanos / 1_000_000_000.0;
+    }
+
+    /**
+     * Get how many times faster than real time the simulation has run
+     */
+    public double getRealtimeFactor() {
+        return elapsedNanos > 0 ? getSimulatedTime() / getElapsedTime() : 0.0;
+    }
+
+    public boolean isSyncVisuals() {
+        return syncVisuals;
+    }
+
+    /**
+     * Enable copying physics transforms into visual spatials after each step
+     * (off by default since headless runs usually have nothing to draw)
+     */
+    public void setSyncVisuals(boolean syncVisuals) {
+        this.syncVisuals = syncVisuals;
+    }
+
+    /**
+     * Release the physics world
+     */
+    public void cleanup() {
+        physicsWorld.cleanupPhysics();
+    }
+}
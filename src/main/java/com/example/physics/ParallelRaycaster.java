@@ -0,0 +1,168 @@
+package com.example.physics;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+import com.jme3.bullet.PhysicsSpace;
+import com.jme3.bullet.collision.shapes.CollisionShape;
+import com.jme3.bullet.collision.shapes.CompoundCollisionShape;
+import com.jme3.bullet.collision.shapes.GImpactCollisionShape;
+import com.jme3.bullet.collision.shapes.HeightfieldCollisionShape;
+import com.jme3.bullet.collision.shapes.MeshCollisionShape;
+import com.jme3.bullet.collision.shapes.infos.ChildCollisionShape;
+import com.jme3.bullet.objects.PhysicsRigidBody;
+
+/**
+ * Splits large batches of independent ray queries (line of sight, ground
+ * probes, hitscan) across a ForkJoin pool.
+ *
+ * Ray tests read the live jbullet world, so they can only run concurrently
+ * while nothing steps or modifies the space. Call this between physics
+ * steps, e.g. from an AppState update(); with parallel threading the step
+ * runs during render and is finished by then. Calls made while the engine
+ * is stepping throw an IllegalStateException. Each worker thread uses its
+ * own RaycastHelper, so no ray state is shared.
+ *
+ * Convex shapes are safe to ray test from several threads, but jbullet's
+ * triangle mesh, heightfield and GImpact shapes keep per-shape scratch
+ * state while a ray walks their triangles. When the space holds any of
+ * those, batches run serially on the calling thread instead. The space is
+ * rescanned whenever the engine's static revision changes, so call
+ * markStaticChanged() after adding a dynamic GImpact body.
+ */
+public class ParallelRaycaster {
+
+    /**
+     * Batches smaller than this run on the calling thread
+     */
+    public static final int MIN_RAYS_PER_TASK = 64;
+
+    private final PhysicsEngine engine;
+    private final ForkJoinPool pool;
+    private final ThreadLocal<RaycastHelper> helpers;
+    private int scannedRevision = -1;
+    private boolean concaveShapes;
+
+    public ParallelRaycaster(PhysicsEngine engine) {
+        this(engine, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Create a raycaster that runs on the given pool
+     */
+    public ParallelRaycaster(PhysicsEngine engine, ForkJoinPool pool) {
+        this.engine = engine;
+        this.pool = pool;
+        this.helpers = ThreadLocal.withInitial(() ->
+                new RaycastHelper(engine.getPhysicsSpace(), engine.getBodyRegistry()));
+    }
+
+    /**
+     * Cast a batch of rays in parallel. Arguments and results are the same
+     * as RaycastHelper.raycastBatch; each ray writes only its own slots of
+     * the output arrays.
+     * @return Number of rays that hit something
+     * @throws IllegalStateException if the physics space is being stepped
+     */
+    public int raycastBatch(float[] origins, float[] ends, int count,
+            float[] hitFractions, float[] hitPoints, float[] hitNormals, int[] hitHandles) {
+        if (engine.isStepping()) {
+            throw new IllegalStateException("Cannot cast rays while the physics space is stepping");
+        }
+        if (count <= MIN_RAYS_PER_TASK || hasConcaveShapes()) {
+            return helpers.get().raycastBatch(origins, ends, 0, count,
+                    hitFractions, hitPoints, hitNormals, hitHandles);
+        }
+
+        // A few tasks per worker keeps threads busy when some rays are slower
+        int grain = Math.max(MIN_RAYS_PER_TASK, count / (pool.getParallelism() * 4));
+        RayTask task = new RayTask(origins, ends, 0, count, grain,
+                hitFractions, hitPoints, hitNormals, hitHandles);
+        return pool.invoke(task);
+    }
+
+    /**
+     * Check if the space holds shapes that force batches to run serially
+     */
+    public boolean hasConcaveShapes() {
+        int revision = engine.getStaticRevision();
+        if (revision != scannedRevision) {
+            scannedRevision = revision;
+            concaveShapes = false;
+            PhysicsSpace physicsSpace = engine.getPhysicsSpace();
+            for (PhysicsRigidBody body : physicsSpace.getRigidBodyList()) {
+                if (isConcave(body.getCollisionShape())) {
+                    concaveShapes = true;
+                    break;
+                }
+            }
+        }
+        return concaveShapes;
+    }
+
+    private static boolean isConcave(CollisionShape shape) {
+        if (shape instanceof MeshCollisionShape
+                || shape instanceof HeightfieldCollisionShape
+                || shape instanceof GImpactCollisionShape) {
+            return true;
+        }
+        if (shape instanceof CompoundCollisionShape) {
+            for (ChildCollisionShape child : ((CompoundCollisionShape) shape).getChildren()) {
+                if (isConcave(child.shape)) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    public ForkJoinPool getPool() {
+        return pool;
+    }
+
+    /**
+     * Casts a range of a batch, splitting it in half until it is small enough
+     */
+    private final class RayTask extends RecursiveTask<Integer> {
+
+        private final float[] origins;
+        private final float[] ends;
+        private final int start;
+        private final int count;
+        private final int grain;
+        private final float[] hitFractions;
+        private final float[] hitPoints;
+        private final float[] hitNormals;
+        private final int[] hitHandles;
+
+        RayTask(float[] origins, float[] ends, int start, int count, int grain,
+                float[] hitFractions, float[] hitPoints, float[] hitNormals, int[] hitHandles) {
+            this.origins = origins;
+            this.ends = ends;
+            this.start = start;
+            this.count = count;
+            this.grain = grain;
+            this.hitFractions = hitFractions;
+            this.hitPoints = hitPoints;
+            this.hitNormals = hitNormals;
+            this.hitHandles = hitHandles;
+        }
+
+        @Override
+        protected Integer compute() {
+            if (count <= grain) {
+                return helpers.get().raycastBatch(origins, ends, start, count,
+                        hitFractions, hitPoints, hitNormals, hitHandles);
+            }
+
+            int half = count / 2;
+            RayTask left = new RayTask(origins, ends, start, half, grain,
+                    hitFractions, hitPoints, hitNormals, hitHandles);
+            RayTask right = new RayTask(origins, ends, start + half, count - half, grain,
+                    hitFractions, hitPoints, hitNormals, hitHandles);
+            left.fork();
+            int rightHits = right.compute();
+            return left.join() + rightHits;
+        }
+    }
+}
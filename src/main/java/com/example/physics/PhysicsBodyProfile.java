@@ -0,0 +1,141 @@
+package com.example.physics;
+
+import com.jme3.bullet.objects.PhysicsRigidBody;
+
+/**
+ * Simulation settings for a class of bodies: when they fall asleep, how
+ * quickly they lose velocity, and whether continuous collision detection
+ * (CCD) keeps them from tunnelling through thin geometry.
+ *
+ * Sleeping bodies are skipped by the solver, so sleeping early pays off for
+ * piles of debris; fast, small bodies such as projectiles need CCD instead.
+ * How long a body must stay below its thresholds before it sleeps is not
+ * per body in jbullet; see PhysicsEngine.setDeactivationTime.
+ *
+ * With automatic CCD the threshold and swept sphere are sized from the
+ * body's collision shape. Bullet only runs the continuous test in steps
+ * where a body moves farther than its motion threshold, so slow bodies cost
+ * nothing extra and only fast ones pay for the sweep.
+ */
+public class PhysicsBodyProfile {
+
+    // Swept sphere relative to the inner radius, slightly smaller so resting
+    // contacts are not caught by the sweep
+    public static final float AUTO_CCD_SPHERE_SCALE = 0.9f;
+
+    private float linearSleepingThreshold;
+    private float angularSleepingThreshold;
+    private float linearDamping;
+    private float angularDamping;
+    private float ccdMotionThreshold;
+    private float ccdSweptSphereRadius;
+    private boolean autoCcd;
+
+    // Predefined profiles
+    /** Bullet's own defaults, without CCD */
+    public static final PhysicsBodyProfile DEFAULT = new PhysicsBodyProfile(0.8f, 1.0f, 0f, 0f);
+    /** Mass 0 bodies, which never move or sleep */
+    public static final PhysicsBodyProfile STATIC = new PhysicsBodyProfile(0.8f, 1.0f, 0f, 0f);
+    /** Small clutter that should settle and sleep quickly */
+    public static final PhysicsBodyProfile DEBRIS = new PhysicsBodyProfile(1.2f, 1.5f, 0.1f, 0.3f);
+    /** Large props that should not jitter once at rest */
+    public static final PhysicsBodyProfile HEAVY = new PhysicsBodyProfile(0.5f, 0.6f, 0.05f, 0.1f);
+    /** Fast bodies that must not pass through walls, with CCD sized to the shape */
+    public static final PhysicsBodyProfile PROJECTILE = new PhysicsBodyProfile(0.2f, 0.2f, 0f, 0f, true);
+
+    public PhysicsBodyProfile(float linearSleepingThreshold, float angularSleepingThreshold,
+            float linearDamping, float angularDamping,
+            float ccdMotionThreshold, float ccdSweptSphereRadius) {
+        this.linearSleepingThreshold = linearSleepingThreshold;
+        this.angularSleepingThreshold = angularSleepingThreshold;
+        this.linearDamping = linearDamping;
+        this.angularDamping = angularDamping;
+        this.ccdMotionThreshold = ccdMotionThreshold;
+        this.ccdSweptSphereRadius = ccdSweptSphereRadius;
+    }
+
+    /**
+     * Create a profile with automatic CCD, or without CCD
+     */
+    public PhysicsBodyProfile(float linearSleepingThreshold, float angularSleepingThreshold,
+            float linearDamping, float angularDamping, boolean autoCcd) {
+        this(linearSleepingThreshold, angularSleepingThreshold, linearDamping, angularDamping, 0f, 0f);
+        this.autoCcd = autoCcd;
+    }
+
+    /**
+     * Create a profile without CCD
+     */
+    public PhysicsBodyProfile(float linearSleepingThreshold, float angularSleepingThreshold,
+            float linearDamping, float angularDamping) {
+        this(linearSleepingThreshold, angularSleepingThreshold, linearDamping, angularDamping, 0f, 0f);
+    }
+
+    /**
+     * Apply this profile to a physics body. Call it before the body is added
+     * to the space, or from the physics thread.
+     */
+    public void applyTo(PhysicsRigidBody body) {
+        body.setSleepingThresholds(linearSleepingThreshold, angularSleepingThreshold);
+        body.setDamping(linearDamping, angularDamping);
+        if (autoCcd && body.getMass() > 0f) {
+            applyAutoCcd(body);
+        } else {
+            body.setCcdMotionThreshold(ccdMotionThreshold);
+            body.setCcdSweptSphereRadius(ccdSweptSphereRadius);
+        }
+    }
+
+    /**
+     * Size CCD from the body's shape: the continuous test runs once a step
+     * moves the body farther than the radius of its inner sphere, which is
+     * when it could start to pass through thin geometry
+     */
+    public static void applyAutoCcd(PhysicsRigidBody body) {
+        float radius = PhysicsShapeFactory.getInnerRadius(body.getCollisionShape());
+        if (radius <= 0f) {
+            return;
+        }
+        body.setCcdMotionThreshold(radius);
+        body.setCcdSweptSphereRadius(radius * AUTO_CCD_SPHERE_SCALE);
+    }
+
+    /**
+     * Create an editable copy, e.g. to tweak a predefined profile
+     */
+    public PhysicsBodyProfile copy() {
+        PhysicsBodyProfile copy = new PhysicsBodyProfile(linearSleepingThreshold, angularSleepingThreshold,
+                linearDamping, angularDamping, ccdMotionThreshold, ccdSweptSphereRadius);
+        copy.autoCcd = autoCcd;
+        return copy;
+    }
+
+    /**
+     * Check if this profile enables continuous collision detection
+     */
+    public boolean isCcdEnabled() {
+        return autoCcd || (ccdMotionThreshold > 0f && ccdSweptSphereRadius > 0f);
+    }
+
+    // Getters and setters
+    public float getLinearSleepingThreshold() { return linearSleepingThreshold; }
+    public void setLinearSleepingThreshold(float threshold) { this.linearSleepingThreshold = threshold; }
+
+    public float getAngularSleepingThreshold() { return angularSleepingThreshold; }
+    public void setAngularSleepingThreshold(float threshold) { this.angularSleepingThreshold = threshold; }
+
+    public float getLinearDamping() { return linearDamping; }
+    public void setLinearDamping(float linearDamping) { this.linearDamping = linearDamping; }
+
+    public float getAngularDamping() { return angularDamping; }
+    public void setAngularDamping(float angularDamping) { this.angularDamping = angularDamping; }
+
+    public float getCcdMotionThreshold() { return ccdMotionThreshold; }
+    public void setCcdMotionThreshold(float ccdMotionThreshold) { this.ccdMotionThreshold = ccdMotionThreshold; }
+
+    public float getCcdSweptSphereRadius() { return ccdSweptSphereRadius; }
+    public void setCcdSweptSphereRadius(float ccdSweptSphereRadius) { this.ccdSweptSphereRadius = ccdSweptSphereRadius; }
+
+    public boolean isAutoCcd() { return autoCcd; }
+    public void setAutoCcd(boolean autoCcd) { this.autoCcd = autoCcd; }
+}
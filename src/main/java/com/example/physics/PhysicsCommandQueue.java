@@ -0,0 +1,73 @@
+package com.example.physics;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+import com.jme3.bullet.PhysicsSpace;
+import com.jme3.bullet.PhysicsTickListener;
+
+/**
+ * Queue of physics mutations that are applied at a step boundary. Used when
+ * the physics space is stepped on its own thread, so that bodies are never
+ * added, removed or pushed while Bullet is in the middle of a step.
+ * Also counts completed physics steps.
+ */
+public class PhysicsCommandQueue implements PhysicsTickListener {
+
+    private final Queue<Runnable> commands;
+    // Written only by the thread that steps the space
+    private volatile long stepCount;
+
+    public PhysicsCommandQueue() {
+        this.commands = new ConcurrentLinkedQueue<>();
+    }
+
+    /**
+     * Queue a command to run before the next physics step
+     */
+    public void enqueue(Runnable command) {
+        commands.add(command);
+    }
+
+    /**
+     * Run all queued commands on the calling thread
+     */
+    public void drain() {
+        Runnable command;
+        while ((command = commands.poll()) != null) {
+            command.run();
+        }
+    }
+
+    /**
+     * Get the number of commands waiting for the next step
+     */
+    public int getPendingCount() {
+        return commands.size();
+    }
+
+    /**
+     * Get the number of physics steps completed so far
+     */
+    public long getStepCount() {
+        return stepCount;
+    }
+
+    /**
+     * Drop all queued commands
+     */
+    public void clear() {
+        commands.clear();
+    }
+
+    @Override
+    public void prePhysicsTick(PhysicsSpace space, float timeStep) {
+        drain();
+    }
+
+    @Override
+    public void physicsTick(PhysicsSpace space, float timeStep) {
+        // Commands are only applied before a step
+        stepCount++;
+    }
+}
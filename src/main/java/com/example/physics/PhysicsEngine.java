@@ -1,8 +1,6 @@
 package com.example.physics;
 
-import java.util.HashMap;
-import java.util.Map;
-
+import com.bulletphysics.BulletGlobals;
 import com.jme3.bullet.BulletAppState;
 import com.jme3.bullet.PhysicsSpace;
 import com.jme3.bullet.collision.shapes.BoxCollisionShape;
@@ -17,6 +15,7 @@ import com.jme3.bullet.objects.PhysicsRigidBody;
 import com.jme3.bullet.util.CollisionShapeFactory;
 import com.jme3.math.Plane;
 import com.jme3.math.Vector3f;
+import com.jme3.renderer.RenderManager;
 import com.jme3.scene.Spatial;
 
 /**
@@ -25,20 +24,83 @@ import com.jme3.scene.Spatial;
  */
 public class PhysicsEngine {
 
+    /** Bullet's default time a body must rest before it sleeps, in seconds */
+    public static final float DEFAULT_DEACTIVATION_TIME = 2f;
+
+    private final boolean headless;
+    private final BulletAppState.ThreadingType threadingType;
+    private final PhysicsCommandQueue commandQueue;
     private BulletAppState bulletAppState;
     private PhysicsSpace physicsSpace;
-    private Map<String, PhysicsRigidBody> physicsObjects;
+    private final BodyRegistry bodies;
+    // Bumped whenever a static body enters or leaves the space
+    private volatile int staticRevision;
+    // True while the space is being stepped, on whichever thread
+    private volatile boolean stepping;
+    private float accuracy = 1f / 60f; // 60 FPS physics
+    private int maxSubSteps = 4;
+    private float deactivationTime = DEFAULT_DEACTIVATION_TIME;
 
     public PhysicsEngine() {
-        this.physicsObjects = new HashMap<>();
+        this(BulletAppState.ThreadingType.SEQUENTIAL);
+    }
+
+    /**
+     * Create a physics engine with the given threading type. With PARALLEL the
+     * physics space steps on its own thread while the frame renders, and all
+     * mutations made through this engine are queued until the next step.
+     */
+    public PhysicsEngine(BulletAppState.ThreadingType threadingType) {
+        this(false, threadingType);
+    }
+
+    private PhysicsEngine(boolean headless, BulletAppState.ThreadingType threadingType) {
+        this.headless = headless;
+        this.threadingType = threadingType;
+        this.commandQueue = new PhysicsCommandQueue();
+        this.bodies = new BodyRegistry();
         initializePhysics();
     }
 
+    /**
+     * Create a physics engine that owns its PhysicsSpace directly, without a
+     * BulletAppState or Application. The space is stepped through step().
+     */
+    public static PhysicsEngine createHeadless() {
+        return new PhysicsEngine(true, BulletAppState.ThreadingType.SEQUENTIAL);
+    }
+
     /**
      * Initialize the physics system
      */
     private void initializePhysics() {
-        bulletAppState = new BulletAppState();
+        if (headless) {
+            physicsSpace = new PhysicsSpace();
+            return;
+        }
+        bulletAppState = new BulletAppState() {
+            @Override
+            public void render(RenderManager rm) {
+                // Sequential steps run inside render(); parallel ones are
+                // submitted here and waited for in postRender()
+                stepping = true;
+                try {
+                    super.render(rm);
+                } finally {
+                    stepping = isParallel();
+                }
+            }
+
+            @Override
+            public void postRender() {
+                try {
+                    super.postRender();
+                } finally {
+                    stepping = false;
+                }
+            }
+        };
+        bulletAppState.setThreadingType(threadingType);
         // Note: physicsSpace will be available after BulletAppState is attached to application
     }
     
@@ -46,17 +108,125 @@ public class PhysicsEngine {
      * Configure physics settings after BulletAppState is attached
      */
     public void configurePhysics() {
-        physicsSpace = bulletAppState.getPhysicsSpace();
+        if (bulletAppState != null) {
+            physicsSpace = bulletAppState.getPhysicsSpace();
+        }
         if (physicsSpace != null) {
             // Configure physics world settings
             physicsSpace.setGravity(new Vector3f(0, -9.81f, 0));
-            physicsSpace.setAccuracy(1f / 60f); // 60 FPS physics
-            physicsSpace.setMaxSubSteps(4);
+            physicsSpace.setAccuracy(accuracy);
+            physicsSpace.setMaxSubSteps(maxSubSteps);
+            applyDeactivationTime();
+
+            // Drains queued mutations in parallel mode and counts steps in all modes
+            physicsSpace.addTickListener(commandQueue);
+        }
+    }
+
+    /**
+     * Set the fixed physics time step
+     */
+    public void setAccuracy(float accuracy) {
+        this.accuracy = accuracy;
+        if (physicsSpace != null) {
+            execute(() -> physicsSpace.setAccuracy(accuracy));
         }
     }
 
+    public float getAccuracy() {
+        return accuracy;
+    }
+
+    /**
+     * Set how many fixed steps a slow frame may catch up with. Fast bodies
+     * rely on CCD rather than extra steps, so this can stay low.
+     */
+    public void setMaxSubSteps(int maxSubSteps) {
+        this.maxSubSteps = maxSubSteps;
+        if (physicsSpace != null) {
+            execute(() -> physicsSpace.setMaxSubSteps(maxSubSteps));
+        }
+    }
+
+    public int getMaxSubSteps() {
+        return maxSubSteps;
+    }
+
+    /**
+     * Set how long a body must stay below its sleeping thresholds before it
+     * falls asleep. This is global, not per body: jbullet reads it from
+     * BulletGlobals, which holds one value per stepping thread, so it is
+     * applied on the thread that steps this engine's space.
+     */
+    public void setDeactivationTime(float deactivationTime) {
+        this.deactivationTime = deactivationTime;
+        if (physicsSpace != null) {
+            applyDeactivationTime();
+        }
+    }
+
+    public float getDeactivationTime() {
+        return deactivationTime;
+    }
+
+    private void applyDeactivationTime() {
+        float time = deactivationTime;
+        execute(() -> BulletGlobals.setDeactivationTime(time));
+    }
+
     /**
-     * Get the BulletAppState for attachment to application
+     * Check if the physics space steps on its own thread
+     */
+    public boolean isParallel() {
+        return threadingType == BulletAppState.ThreadingType.PARALLEL && !headless;
+    }
+
+    /**
+     * Run a physics mutation. In parallel mode the command is queued and
+     * applied on the physics thread before the next step; otherwise it runs
+     * immediately on the calling thread.
+     */
+    public void execute(Runnable command) {
+        if (isParallel()) {
+            commandQueue.enqueue(command);
+        } else {
+            command.run();
+        }
+    }
+
+    /**
+     * Get the number of physics steps completed so far
+     */
+    public long getStepCount() {
+        return commandQueue.getStepCount();
+    }
+
+    /**
+     * Check if the space is being stepped right now. With PARALLEL threading
+     * this is true from render() until postRender() has waited for the
+     * physics thread, so queries that read the space from other threads
+     * can check it first.
+     */
+    public boolean isStepping() {
+        return stepping;
+    }
+
+    /**
+     * Get the queue of mutations waiting for the next step in parallel mode
+     */
+    public PhysicsCommandQueue getCommandQueue() {
+        return commandQueue;
+    }
+
+    /**
+     * Check if this engine runs without a BulletAppState
+     */
+    public boolean isHeadless() {
+        return headless;
+    }
+
+    /**
+     * Get the BulletAppState for attachment to application (null when headless)
      */
     public BulletAppState getBulletAppState() {
         return bulletAppState;
@@ -70,73 +240,63 @@ public class PhysicsEngine {
     }
 
     /**
-     * Create a sphere physics body
+     * Create a physics body from a shape and return its handle
+     * @param id Optional string id (null for handle-only bodies)
+     * @param position Initial location, or null to keep the origin
      */
-    public PhysicsRigidBody createSphere(String id, float radius, float mass, Vector3f position) {
-        CollisionShape sphereShape = new SphereCollisionShape(radius);
-        PhysicsRigidBody sphereBody = new PhysicsRigidBody(sphereShape, mass);
-        sphereBody.setPhysicsLocation(position);
+    public int createBody(String id, CollisionShape shape, float mass, Vector3f position) {
+        PhysicsRigidBody body = new PhysicsRigidBody(shape, mass);
+        if (position != null) {
+            body.setPhysicsLocation(position);
+        }
+        return registerBody(id, body, null);
+    }
 
-        physicsSpace.add(sphereBody);
-        physicsObjects.put(id, sphereBody);
+    /**
+     * Register an existing body (or RigidBodyControl) and add it to the space
+     */
+    public int registerBody(String id, PhysicsRigidBody body, Spatial visual) {
+        int handle = bodies.register(id, body, visual);
+        addToSpace(body);
+        if (body.getMass() == 0f) {
+            markStaticChanged();
+        }
+        return handle;
+    }
 
-        return sphereBody;
+    /**
+     * Create a sphere physics body
+     */
+    public PhysicsRigidBody createSphere(String id, float radius, float mass, Vector3f position) {
+        return bodies.getBody(createBody(id, new SphereCollisionShape(radius), mass, position));
     }
 
     /**
      * Create a box physics body
      */
     public PhysicsRigidBody createBox(String id, Vector3f halfExtents, float mass, Vector3f position) {
-        CollisionShape boxShape = new BoxCollisionShape(halfExtents);
-        PhysicsRigidBody boxBody = new PhysicsRigidBody(boxShape, mass);
-        boxBody.setPhysicsLocation(position);
-
-        physicsSpace.add(boxBody);
-        physicsObjects.put(id, boxBody);
-
-        return boxBody;
+        return bodies.getBody(createBody(id, new BoxCollisionShape(halfExtents), mass, position));
     }
 
     /**
      * Create a capsule physics body
      */
     public PhysicsRigidBody createCapsule(String id, float radius, float height, float mass, Vector3f position) {
-        CollisionShape capsuleShape = new CapsuleCollisionShape(radius, height);
-        PhysicsRigidBody capsuleBody = new PhysicsRigidBody(capsuleShape, mass);
-        capsuleBody.setPhysicsLocation(position);
-
-        physicsSpace.add(capsuleBody);
-        physicsObjects.put(id, capsuleBody);
-
-        return capsuleBody;
+        return bodies.getBody(createBody(id, new CapsuleCollisionShape(radius, height), mass, position));
     }
 
     /**
      * Create a cylinder physics body
      */
     public PhysicsRigidBody createCylinder(String id, Vector3f halfExtents, float mass, Vector3f position) {
-        CollisionShape cylinderShape = new CylinderCollisionShape(halfExtents);
-        PhysicsRigidBody cylinderBody = new PhysicsRigidBody(cylinderShape, mass);
-        cylinderBody.setPhysicsLocation(position);
-
-        physicsSpace.add(cylinderBody);
-        physicsObjects.put(id, cylinderBody);
-
-        return cylinderBody;
+        return bodies.getBody(createBody(id, new CylinderCollisionShape(halfExtents), mass, position));
     }
 
     /**
      * Create a cone physics body
      */
     public PhysicsRigidBody createCone(String id, float radius, float height, float mass, Vector3f position) {
-        CollisionShape coneShape = new ConeCollisionShape(radius, height);
-        PhysicsRigidBody coneBody = new PhysicsRigidBody(coneShape, mass);
-        coneBody.setPhysicsLocation(position);
-
-        physicsSpace.add(coneBody);
-        physicsObjects.put(id, coneBody);
-
-        return coneBody;
+        return bodies.getBody(createBody(id, new ConeCollisionShape(radius, height), mass, position));
     }
 
     /**
@@ -144,13 +304,8 @@ public class PhysicsEngine {
      */
     public PhysicsRigidBody createPlane(String id, Vector3f normal, float constant) {
         Plane plane = new Plane(normal, constant);
-        CollisionShape planeShape = new PlaneCollisionShape(plane);
-        PhysicsRigidBody planeBody = new PhysicsRigidBody(planeShape, 0); // Static body
-
-        physicsSpace.add(planeBody);
-        physicsObjects.put(id, planeBody);
-
-        return planeBody;
+        // Static body
+        return bodies.getBody(createBody(id, new PlaneCollisionShape(plane), 0, null));
     }
 
     /**
@@ -158,37 +313,24 @@ public class PhysicsEngine {
      */
     public PhysicsRigidBody createMeshBody(String id, Spatial spatial, float mass, Vector3f position) {
         CollisionShape meshShape = CollisionShapeFactory.createMeshShape(spatial);
-        PhysicsRigidBody meshBody = new PhysicsRigidBody(meshShape, mass);
-        meshBody.setPhysicsLocation(position);
-
-        physicsSpace.add(meshBody);
-        physicsObjects.put(id, meshBody);
-
-        return meshBody;
+        return bodies.getBody(createBody(id, meshShape, mass, position));
     }
 
     /**
      * Create a compound shape (multiple shapes combined)
      */
     public PhysicsRigidBody createCompoundBody(String id, float mass, Vector3f position) {
-        CompoundCollisionShape compoundShape = new CompoundCollisionShape();
-        PhysicsRigidBody compoundBody = new PhysicsRigidBody(compoundShape, mass);
-        compoundBody.setPhysicsLocation(position);
-
-        physicsSpace.add(compoundBody);
-        physicsObjects.put(id, compoundBody);
-
-        return compoundBody;
+        return bodies.getBody(createBody(id, new CompoundCollisionShape(), mass, position));
     }
 
     /**
      * Add a child shape to a compound body
      */
     public void addChildShape(String compoundId, CollisionShape childShape, Vector3f offset) {
-        PhysicsRigidBody compoundBody = physicsObjects.get(compoundId);
+        PhysicsRigidBody compoundBody = getPhysicsBody(compoundId);
         if (compoundBody != null && compoundBody.getCollisionShape() instanceof CompoundCollisionShape) {
             CompoundCollisionShape compound = (CompoundCollisionShape) compoundBody.getCollisionShape();
-            compound.addChildShape(childShape, offset);
+            execute(() -> compound.addChildShape(childShape, offset));
         }
     }
 
@@ -196,8 +338,27 @@ public class PhysicsEngine {
      * Apply force to a physics body
      */
     public void applyForce(String id, Vector3f force) {
-        PhysicsRigidBody body = physicsObjects.get(id);
+        applyForce(bodies.getHandle(id), force);
+    }
+
+    /**
+     * Apply force to a physics body by handle
+     */
+    public void applyForce(int handle, Vector3f force) {
+        PhysicsRigidBody body = bodies.getBody(handle);
         if (body != null) {
+            applyForce(body, force);
+        }
+    }
+
+    /**
+     * Apply force to a physics body, queued until the next step in parallel mode
+     */
+    public void applyForce(PhysicsRigidBody body, Vector3f force) {
+        if (isParallel()) {
+            Vector3f queuedForce = force.clone();
+            commandQueue.enqueue(() -> body.applyCentralForce(queuedForce));
+        } else {
             body.applyCentralForce(force);
         }
     }
@@ -206,8 +367,27 @@ public class PhysicsEngine {
      * Apply impulse to a physics body
      */
     public void applyImpulse(String id, Vector3f impulse) {
-        PhysicsRigidBody body = physicsObjects.get(id);
+        applyImpulse(bodies.getHandle(id), impulse);
+    }
+
+    /**
+     * Apply impulse to a physics body by handle
+     */
+    public void applyImpulse(int handle, Vector3f impulse) {
+        PhysicsRigidBody body = bodies.getBody(handle);
         if (body != null) {
+            applyImpulse(body, impulse);
+        }
+    }
+
+    /**
+     * Apply impulse to a physics body, queued until the next step in parallel mode
+     */
+    public void applyImpulse(PhysicsRigidBody body, Vector3f impulse) {
+        if (isParallel()) {
+            Vector3f queuedImpulse = impulse.clone();
+            commandQueue.enqueue(() -> body.applyImpulse(queuedImpulse, Vector3f.ZERO));
+        } else {
             body.applyImpulse(impulse, Vector3f.ZERO);
         }
     }
@@ -216,9 +396,17 @@ public class PhysicsEngine {
      * Apply torque to a physics body
      */
     public void applyTorque(String id, Vector3f torque) {
-        PhysicsRigidBody body = physicsObjects.get(id);
+        applyTorque(bodies.getHandle(id), torque);
+    }
+
+    /**
+     * Apply torque to a physics body by handle
+     */
+    public void applyTorque(int handle, Vector3f torque) {
+        PhysicsRigidBody body = bodies.getBody(handle);
         if (body != null) {
-            body.applyTorque(torque);
+            Vector3f queuedTorque = isParallel() ? torque.clone() : torque;
+            execute(() -> body.applyTorque(queuedTorque));
         }
     }
 
@@ -226,19 +414,46 @@ public class PhysicsEngine {
      * Set linear velocity of a physics body
      */
     public void setLinearVelocity(String id, Vector3f velocity) {
-        PhysicsRigidBody body = physicsObjects.get(id);
+        setLinearVelocity(bodies.getHandle(id), velocity);
+    }
+
+    /**
+     * Set linear velocity of a physics body by handle
+     */
+    public void setLinearVelocity(int handle, Vector3f velocity) {
+        PhysicsRigidBody body = bodies.getBody(handle);
         if (body != null) {
-            body.setLinearVelocity(velocity);
+            Vector3f queuedVelocity = isParallel() ? velocity.clone() : velocity;
+            execute(() -> body.setLinearVelocity(queuedVelocity));
         }
     }
 
+    /**
+     * Get linear velocity of a physics body by handle into a store vector
+     */
+    public Vector3f getLinearVelocity(int handle, Vector3f store) {
+        PhysicsRigidBody body = bodies.getBody(handle);
+        if (body != null) {
+            return body.getLinearVelocity(store);
+        }
+        return store.set(Vector3f.ZERO);
+    }
+
     /**
      * Set angular velocity of a physics body
      */
     public void setAngularVelocity(String id, Vector3f velocity) {
-        PhysicsRigidBody body = physicsObjects.get(id);
+        setAngularVelocity(bodies.getHandle(id), velocity);
+    }
+
+    /**
+     * Set angular velocity of a physics body by handle
+     */
+    public void setAngularVelocity(int handle, Vector3f velocity) {
+        PhysicsRigidBody body = bodies.getBody(handle);
         if (body != null) {
-            body.setAngularVelocity(velocity);
+            Vector3f queuedVelocity = isParallel() ? velocity.clone() : velocity;
+            execute(() -> body.setAngularVelocity(queuedVelocity));
         }
     }
 
@@ -246,25 +461,120 @@ public class PhysicsEngine {
      * Get physics body by ID
      */
     public PhysicsRigidBody getPhysicsBody(String id) {
-        return physicsObjects.get(id);
+        return bodies.getBody(bodies.getHandle(id));
+    }
+
+    /**
+     * Get physics body by handle
+     */
+    public PhysicsRigidBody getPhysicsBody(int handle) {
+        return bodies.getBody(handle);
+    }
+
+    /**
+     * Get the handle of a body registered under a string id
+     */
+    public int getHandle(String id) {
+        return bodies.getHandle(id);
+    }
+
+    /**
+     * Get the registry that owns all bodies created through this engine
+     */
+    public BodyRegistry getBodyRegistry() {
+        return bodies;
     }
 
     /**
      * Remove physics body
      */
     public void removePhysicsBody(String id) {
-        PhysicsRigidBody body = physicsObjects.get(id);
+        removePhysicsBody(bodies.getHandle(id));
+    }
+
+    /**
+     * Remove physics body by handle
+     */
+    public void removePhysicsBody(int handle) {
+        PhysicsRigidBody body = bodies.getBody(handle);
         if (body != null) {
-            physicsSpace.remove(body);
-            physicsObjects.remove(id);
+            boolean wasStatic = bodies.getMass(handle) == 0f;
+            bodies.release(handle);
+            removeFromSpace(body);
+            if (wasStatic) {
+                markStaticChanged();
+            }
         }
     }
 
+    /**
+     * Get a counter that changes whenever a static body is added to or
+     * removed from the space. Caches of static geometry compare it to know
+     * when they are stale.
+     */
+    public int getStaticRevision() {
+        return staticRevision;
+    }
+
+    /**
+     * Bump the static revision once queued space changes have been applied.
+     * Call this after moving a static body by hand.
+     */
+    public void markStaticChanged() {
+        execute(() -> staticRevision++);
+    }
+
+    /**
+     * Add a collision object to the physics space at the next step boundary
+     */
+    public void addToSpace(Object object) {
+        execute(() -> physicsSpace.add(object));
+    }
+
+    /**
+     * Remove a collision object from the physics space at the next step boundary
+     */
+    public void removeFromSpace(Object object) {
+        execute(() -> physicsSpace.remove(object));
+    }
+
     /**
      * Set gravity for the physics world
      */
     public void setGravity(Vector3f gravity) {
-        physicsSpace.setGravity(gravity);
+        Vector3f queuedGravity = isParallel() ? gravity.clone() : gravity;
+        execute(() -> physicsSpace.setGravity(queuedGravity));
+    }
+
+    /**
+     * Advance a headless simulation by exactly one step of the given size and
+     * deliver the collision events it produced
+     */
+    public void step(float timeStep) {
+        if (!headless) {
+            throw new IllegalStateException("step() is only available on a headless PhysicsEngine; BulletAppState steps attached engines");
+        }
+        // maxSteps = 0 makes Bullet take a single internal step of exactly timeStep
+        stepping = true;
+        try {
+            physicsSpace.update(timeStep, 0);
+        } finally {
+            stepping = false;
+        }
+        physicsSpace.distributeEvents();
+    }
+
+    /**
+     * Deliver the collision events of the last steps to the collision
+     * listeners now. BulletAppState does the same in its own update, which
+     * runs after states attached before it, so those would see the events a
+     * frame late. Render thread only; the physics thread is idle during the
+     * update phase.
+     */
+    public void distributeEvents() {
+        if (physicsSpace != null) {
+            physicsSpace.distributeEvents();
+        }
     }
 
     /**
@@ -279,9 +589,12 @@ public class PhysicsEngine {
      * Clean up physics resources
      */
     public void cleanup() {
-        physicsObjects.clear();
+        bodies.clear();
+        commandQueue.clear();
         if (bulletAppState != null) {
             bulletAppState.cleanup();
+        } else if (physicsSpace != null) {
+            physicsSpace.destroy();
         }
     }
 }
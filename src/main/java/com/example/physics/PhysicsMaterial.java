@@ -14,6 +14,7 @@ public class PhysicsMaterial {
     private float spinningFriction;
     private float contactDamping;
     private float contactStiffness;
+    private PhysicsBodyProfile bodyProfile = PhysicsBodyProfile.DEFAULT;
     
     // Predefined materials
     public static final PhysicsMaterial RUBBER = new PhysicsMaterial(0.8f, 0.9f, 0.1f, 0.1f);
@@ -122,4 +123,7 @@ public class PhysicsMaterial {
     
     public float getContactStiffness() { return contactStiffness; }
     public void setContactStiffness(float contactStiffness) { this.contactStiffness = contactStiffness; }
+    
+    public PhysicsBodyProfile getBodyProfile() { return bodyProfile; }
+    public void setBodyProfile(PhysicsBodyProfile bodyProfile) { this.bodyProfile = bodyProfile; }
 }
\ No newline at end of file
@@ -193,4 +193,40 @@ public class PhysicsShapeFactory {
 
         return compound;
     }
+
+    /**
+     * Get the radius of the largest sphere around the shape's center that
+     * fits inside it, including the shape's scale. Used to size continuous
+     * collision detection.
+     * @return The radius, or 0 for shapes without a simple inner sphere
+     *         (meshes, compounds, planes)
+     */
+    public static float getInnerRadius(CollisionShape shape) {
+        Vector3f scale = shape.getScale();
+        float minScale = Math.min(scale.x, Math.min(scale.y, scale.z));
+
+        if (shape instanceof SphereCollisionShape) {
+            return ((SphereCollisionShape) shape).getRadius() * minScale;
+        }
+        if (shape instanceof BoxCollisionShape) {
+            Vector3f half = ((BoxCollisionShape) shape).getHalfExtents();
+            return Math.min(half.x * scale.x, Math.min(half.y * scale.y, half.z * scale.z));
+        }
+        if (shape instanceof CylinderCollisionShape) {
+            Vector3f half = ((CylinderCollisionShape) shape).getHalfExtents();
+            return Math.min(half.x * scale.x, Math.min(half.y * scale.y, half.z * scale.z));
+        }
+        if (shape instanceof CapsuleCollisionShape) {
+            return ((CapsuleCollisionShape) shape).getRadius() * minScale;
+        }
+        if (shape instanceof ConeCollisionShape) {
+            // The center is half way up, where the slanted side is closest
+            ConeCollisionShape cone = (ConeCollisionShape) shape;
+            float radius = cone.getRadius();
+            float height = cone.getHeight();
+            float slant = (float) Math.sqrt(radius * radius + height * height);
+            return radius * height / (2f * slant) * minScale;
+        }
+        return 0f;
+    }
 }
@@ -1,10 +1,9 @@
 package com.example.physics;
 
-import java.util.HashMap;
-import java.util.Map;
-
+import com.example.rendering.StaticBatcher;
 import com.jme3.app.Application;
 import com.jme3.app.state.BaseAppState;
+import com.jme3.bullet.BulletAppState;
 import com.jme3.bullet.PhysicsSpace;
 import com.jme3.bullet.collision.shapes.BoxCollisionShape;
 import com.jme3.bullet.collision.shapes.CollisionShape;
@@ -20,31 +19,38 @@ import com.jme3.scene.Spatial;
  */
 public class PhysicsWorld extends BaseAppState {
 
+    private final BulletAppState.ThreadingType threadingType;
     private PhysicsEngine physicsEngine;
     private CollisionListener collisionListener;
     private Node physicsNode;
-    private Map<String, Spatial> visualObjects;
-    private Map<String, PhysicsRigidBody> physicsObjects;
+    private GroundHeightCache groundCache;
+    private StaticBatcher staticBatcher;
+    private boolean staticBatching = true;
+    private PhysicsBodyProfile defaultProfile = PhysicsBodyProfile.DEFAULT;
+    private PhysicsBodyProfile staticProfile = PhysicsBodyProfile.STATIC;
 
     public PhysicsWorld() {
-        this.visualObjects = new HashMap<>();
-        this.physicsObjects = new HashMap<>();
+        this(BulletAppState.ThreadingType.SEQUENTIAL);
+    }
+
+    /**
+     * Create a physics world with the given threading type. With PARALLEL the
+     * physics space steps on its own thread while the frame renders; object
+     * creation, removal, forces and impulses are queued and applied before the
+     * next step, while scene graph changes still happen immediately.
+     */
+    public PhysicsWorld(BulletAppState.ThreadingType threadingType) {
+        this.threadingType = threadingType;
     }
 
     @Override
     protected void initialize(Application app) {
-        physicsEngine = new PhysicsEngine();
-        collisionListener = new CollisionListener();
-        physicsNode = new Node("Physics Node");
+        physicsEngine = new PhysicsEngine(threadingType);
 
         // Attach physics to application
         app.getStateManager().attach(physicsEngine.getBulletAppState());
 
-        // Configure physics after attachment
-        physicsEngine.configurePhysics();
-
-        // Add collision listener
-        physicsEngine.getPhysicsSpace().addCollisionListener(collisionListener);
+        setupPhysics();
 
         // Attach physics node to root
         if (app instanceof com.jme3.app.SimpleApplication) {
@@ -52,16 +58,67 @@ public class PhysicsWorld extends BaseAppState {
         }
     }
 
+    /**
+     * Initialize without an Application. The physics space is owned by a
+     * headless PhysicsEngine and must be stepped explicitly, usually through
+     * a HeadlessPhysicsDriver. The physics node is not attached to any scene.
+     */
+    public void initializeHeadless() {
+        if (physicsEngine != null) {
+            throw new IllegalStateException("PhysicsWorld is already initialized");
+        }
+        physicsEngine = PhysicsEngine.createHeadless();
+        setupPhysics();
+    }
+
+    /**
+     * Configure the engine and wire up collision handling and the physics node
+     */
+    private void setupPhysics() {
+        collisionListener = new CollisionListener(physicsEngine.getBodyRegistry());
+        physicsNode = new Node("Physics Node");
+        staticBatcher = new StaticBatcher("Static Batches");
+        physicsNode.attachChild(staticBatcher.getNode());
+
+        // Configure physics after attachment
+        physicsEngine.configurePhysics();
+
+        // Add collision listener
+        physicsEngine.getPhysicsSpace().addCollisionListener(collisionListener);
+    }
+
     @Override
     protected void cleanup(Application app) {
+        cleanupPhysics();
+    }
+
+    /**
+     * Release physics resources, also used for headless worlds
+     */
+    public void cleanupPhysics() {
         if (physicsEngine != null) {
             physicsEngine.cleanup();
         }
         if (collisionListener != null) {
             collisionListener.clear();
         }
-        visualObjects.clear();
-        physicsObjects.clear();
+        groundCache = null;
+    }
+
+    @Override
+    public void update(float tpf) {
+        // BulletAppState is attached after this state and would distribute the
+        // last step's events only after this update, a frame late
+        physicsEngine.distributeEvents();
+
+        // Deliver buffered collision events outside the physics step
+        collisionListener.flushEvents();
+
+        // Turn this frame's contacts into begin / persist / end events
+        collisionListener.updateContacts(physicsEngine.getStepCount());
+
+        // Merge static visuals added or removed this frame
+        staticBatcher.flush();
     }
 
     @Override
@@ -79,39 +136,86 @@ public class PhysicsWorld extends BaseAppState {
      */
     public PhysicsRigidBody createPhysicsObject(String id, Spatial visual, CollisionShape shape,
             float mass, Vector3f position) {
+        return getBodyRegistry().getBody(createPhysicsHandle(id, visual, shape, mass, position));
+    }
+
+    /**
+     * Create a physics object with a material. The material's body profile
+     * is applied after its friction and restitution.
+     */
+    public PhysicsRigidBody createPhysicsObject(String id, Spatial visual, CollisionShape shape,
+            float mass, Vector3f position, PhysicsMaterial material) {
+        PhysicsBodyProfile profile = mass == 0f ? staticProfile : material.getBodyProfile();
+        PhysicsRigidBody body = createBody(visual, shape, mass, position);
+        material.applyTo(body);
+        return getBodyRegistry().getBody(registerBody(id, body, visual, profile));
+    }
+
+    /**
+     * Create a physics object with visual representation and return its handle
+     * @param id Optional string id (null for handle-only objects)
+     */
+    public int createPhysicsHandle(String id, Spatial visual, CollisionShape shape,
+            float mass, Vector3f position) {
+        return createPhysicsHandle(id, visual, shape, mass, position, getProfile(mass));
+    }
+
+    /**
+     * Create a physics object with an explicit body profile and return its
+     * handle
+     */
+    public int createPhysicsHandle(String id, Spatial visual, CollisionShape shape,
+            float mass, Vector3f position, PhysicsBodyProfile profile) {
+        return registerBody(id, createBody(visual, shape, mass, position), visual, profile);
+    }
 
+    /**
+     * Create the body, as a control on the visual if there is one
+     */
+    private PhysicsRigidBody createBody(Spatial visual, CollisionShape shape, float mass, Vector3f position) {
         // Set up visual
         if (visual != null) {
             visual.setLocalTranslation(position);
 
             // Add rigid body control to sync physics with visual
-            RigidBodyControl control = new RigidBodyControl(shape, mass);
+            RigidBodyControl control = new SleepAwareRigidBodyControl(shape, mass);
             control.setPhysicsLocation(position);
             visual.addControl(control);
 
-            // Add to physics world
-            physicsEngine.getPhysicsSpace().add(control);
-
             // Attach to scene
-            physicsNode.attachChild(visual);
-            visualObjects.put(id, visual);
-
-            // Register with collision listener
-            collisionListener.registerBody(id, control);
-            physicsObjects.put(id, control);
-
+            attachVisual(visual, mass);
             return control;
         }
 
         // If no visual, create physics-only body
         PhysicsRigidBody body = new PhysicsRigidBody(shape, mass);
-        body.setPhysicsLocation(position);
-        physicsEngine.getPhysicsSpace().add(body);
+        if (position != null) {
+            body.setPhysicsLocation(position);
+        }
+        return body;
+    }
 
-        collisionListener.registerBody(id, body);
-        physicsObjects.put(id, body);
+    /**
+     * Attach a visual under the physics node. Static visuals are batched with
+     * others that share their material; the body keeps its own collider.
+     */
+    private void attachVisual(Spatial visual, float mass) {
+        if (mass == 0f && staticBatching) {
+            staticBatcher.add(visual);
+        } else {
+            physicsNode.attachChild(visual);
+        }
+    }
 
-        return body;
+    /**
+     * Apply the profile while the body is still outside the space, then
+     * register and add it to the physics world
+     */
+    private int registerBody(String id, PhysicsRigidBody body, Spatial visual, PhysicsBodyProfile profile) {
+        if (profile != null) {
+            profile.applyTo(body);
+        }
+        return physicsEngine.registerBody(id, body, visual);
     }
 
     /**
@@ -123,6 +227,40 @@ public class PhysicsWorld extends BaseAppState {
         return createPhysicsObject(id, visual, shape, mass, position);
     }
 
+    /**
+     * Create a sphere object, with automatic CCD if it will move fast enough
+     * to pass through thin geometry. Other bodies get CCD only from their
+     * profile, e.g. PROJECTILE.
+     */
+    public PhysicsRigidBody createSphere(String id, Spatial visual, float radius,
+            float mass, Vector3f position, boolean ccd) {
+        PhysicsBodyProfile profile = getProfile(mass);
+        if (ccd && !profile.isAutoCcd()) {
+            profile = profile.copy();
+            profile.setAutoCcd(true);
+        }
+        CollisionShape shape = PhysicsShapeFactory.createSphere(radius);
+        PhysicsRigidBody body = createBody(visual, shape, mass, position);
+        registerBody(id, body, visual, profile);
+        return body;
+    }
+
+    /**
+     * Create a fast sphere, such as a bullet or thrown ball, with the
+     * PROJECTILE profile so continuous collision detection keeps it from
+     * passing through thin geometry
+     * @param velocity Initial velocity, or null
+     */
+    public int createProjectile(String id, Spatial visual, float radius, float mass,
+            Vector3f position, Vector3f velocity) {
+        CollisionShape shape = PhysicsShapeFactory.createSphere(radius);
+        PhysicsRigidBody body = createBody(visual, shape, mass, position);
+        if (velocity != null) {
+            body.setLinearVelocity(velocity);
+        }
+        return registerBody(id, body, visual, PhysicsBodyProfile.PROJECTILE);
+    }
+
     /**
      * Create a box object
      */
@@ -168,22 +306,17 @@ public class PhysicsWorld extends BaseAppState {
             visual.setLocalTranslation(0, -1f, 0);
 
             // Add RigidBodyControl with mass = 0 (static) - let it auto-generate collision shape
-            RigidBodyControl groundControl = new RigidBodyControl(0f);
+            RigidBodyControl groundControl = new SleepAwareRigidBodyControl(0f);
             visual.addControl(groundControl);
 
             // Set physics location to match visual
             groundControl.setPhysicsLocation(new Vector3f(0, -1f, 0));
 
-            // Add to physics space
-            physicsEngine.getPhysicsSpace().add(groundControl);
-
             // Attach visual to scene
-            physicsNode.attachChild(visual);
-            visualObjects.put(id, visual);
+            attachVisual(visual, 0f);
 
-            // Register for collision detection
-            collisionListener.registerBody(id, groundControl);
-            physicsObjects.put(id, groundControl);
+            // Register and add to physics space
+            registerBody(id, groundControl, visual, staticProfile);
 
             System.out.println("SOLID GROUND: Static box (auto-generated collision) at Y=-1");
             System.out.println("Ground should now stop falling objects!");
@@ -207,22 +340,17 @@ public class PhysicsWorld extends BaseAppState {
             visual.setLocalTranslation(0, -halfExtents.y, 0);
 
             // Add RigidBodyControl with explicit shape and mass = 0 (static)
-            RigidBodyControl groundControl = new RigidBodyControl(groundShape, 0f);
+            RigidBodyControl groundControl = new SleepAwareRigidBodyControl(groundShape, 0f);
             visual.addControl(groundControl);
 
             // Set physics location to match visual
             groundControl.setPhysicsLocation(new Vector3f(0, -halfExtents.y, 0));
 
-            // Add to physics space
-            physicsEngine.getPhysicsSpace().add(groundControl);
-
             // Attach visual to scene
-            physicsNode.attachChild(visual);
-            visualObjects.put(id, visual);
+            attachVisual(visual, 0f);
 
-            // Register for collision detection
-            collisionListener.registerBody(id, groundControl);
-            physicsObjects.put(id, groundControl);
+            // Register and add to physics space
+            registerBody(id, groundControl, visual, staticProfile);
 
             System.out.println("SOLID GROUND: Static box (" + (halfExtents.x * 2) + "x" + (halfExtents.y * 2) + "x" + (halfExtents.z * 2) + ") at Y=" + (-halfExtents.y));
             System.out.println("Ground should now stop falling objects!");
@@ -237,17 +365,18 @@ public class PhysicsWorld extends BaseAppState {
      * Remove a physics object
      */
     public void removePhysicsObject(String id) {
-        PhysicsRigidBody body = physicsObjects.get(id);
-        if (body != null) {
-            physicsEngine.getPhysicsSpace().remove(body);
-            collisionListener.unregisterBody(body);
-            physicsObjects.remove(id);
-        }
+        removePhysicsObject(getBodyRegistry().getHandle(id));
+    }
 
-        Spatial visual = visualObjects.get(id);
-        if (visual != null) {
+    /**
+     * Remove a physics object by handle
+     */
+    public void removePhysicsObject(int handle) {
+        Spatial visual = getBodyRegistry().getVisual(handle);
+        physicsEngine.removePhysicsBody(handle);
+
+        if (visual != null && !staticBatcher.remove(visual)) {
             visual.removeFromParent();
-            visualObjects.remove(id);
         }
     }
 
@@ -265,6 +394,13 @@ public class PhysicsWorld extends BaseAppState {
         return collisionListener;
     }
 
+    /**
+     * Get the node that holds all visual physics objects
+     */
+    public Node getPhysicsNode() {
+        return physicsNode;
+    }
+
     /**
      * Check if physics world is ready
      */
@@ -286,14 +422,115 @@ public class PhysicsWorld extends BaseAppState {
      * Get physics object by ID
      */
     public PhysicsRigidBody getPhysicsObject(String id) {
-        return physicsObjects.get(id);
+        return physicsEngine.getPhysicsBody(id);
+    }
+
+    /**
+     * Get physics object by handle
+     */
+    public PhysicsRigidBody getPhysicsObject(int handle) {
+        return physicsEngine.getPhysicsBody(handle);
     }
 
     /**
      * Get visual object by ID
      */
     public Spatial getVisualObject(String id) {
-        return visualObjects.get(id);
+        return getBodyRegistry().getVisual(getBodyRegistry().getHandle(id));
+    }
+
+    /**
+     * Get visual object by handle
+     */
+    public Spatial getVisualObject(int handle) {
+        return getBodyRegistry().getVisual(handle);
+    }
+
+    /**
+     * Get the handle of an object registered under a string id
+     */
+    public int getHandle(String id) {
+        return physicsEngine.getHandle(id);
+    }
+
+    /**
+     * Get the registry shared by the engine and the collision listener
+     */
+    public BodyRegistry getBodyRegistry() {
+        return physicsEngine.getBodyRegistry();
+    }
+
+    /**
+     * Change the profile of an existing body. The change is applied through
+     * the engine, so it is safe while the space steps in parallel.
+     */
+    public void setProfile(int handle, PhysicsBodyProfile profile) {
+        PhysicsRigidBody body = getBodyRegistry().getBody(handle);
+        if (body != null && profile != null) {
+            physicsEngine.execute(() -> {
+                profile.applyTo(body);
+                body.activate();
+            });
+        }
+    }
+
+    /**
+     * Get the profile new bodies of the given mass receive
+     */
+    public PhysicsBodyProfile getProfile(float mass) {
+        return mass == 0f ? staticProfile : defaultProfile;
+    }
+
+    /**
+     * Set the profile applied to new dynamic bodies
+     */
+    public void setDefaultProfile(PhysicsBodyProfile profile) {
+        this.defaultProfile = profile;
+    }
+
+    public PhysicsBodyProfile getDefaultProfile() {
+        return defaultProfile;
+    }
+
+    /**
+     * Set the profile applied to new static (mass 0) bodies
+     */
+    public void setStaticProfile(PhysicsBodyProfile profile) {
+        this.staticProfile = profile;
+    }
+
+    public PhysicsBodyProfile getStaticProfile() {
+        return staticProfile;
+    }
+
+    /**
+     * Set whether visuals of new static bodies are merged into batches.
+     * Visuals already added keep their current placement.
+     */
+    public void setStaticBatching(boolean staticBatching) {
+        this.staticBatching = staticBatching;
+    }
+
+    public boolean isStaticBatching() {
+        return staticBatching;
+    }
+
+    /**
+     * Get the batcher that holds the visuals of static bodies
+     */
+    public StaticBatcher getStaticBatcher() {
+        return staticBatcher;
+    }
+
+    /**
+     * Get the cache of static ground heights, created on first use. It is
+     * invalidated automatically when static bodies are added or removed.
+     */
+    public GroundHeightCache getGroundCache() {
+        if (groundCache == null) {
+            groundCache = new GroundHeightCache(physicsEngine);
+        }
+        return groundCache;
     }
 
     /**
@@ -303,6 +540,13 @@ public class PhysicsWorld extends BaseAppState {
         physicsEngine.applyForce(id, force);
     }
 
+    /**
+     * Apply force to object by handle
+     */
+    public void applyForce(int handle, Vector3f force) {
+        physicsEngine.applyForce(handle, force);
+    }
+
     /**
      * Apply impulse to object
      */
@@ -310,6 +554,27 @@ public class PhysicsWorld extends BaseAppState {
         physicsEngine.applyImpulse(id, impulse);
     }
 
+    /**
+     * Apply impulse to object by handle
+     */
+    public void applyImpulse(int handle, Vector3f impulse) {
+        physicsEngine.applyImpulse(handle, impulse);
+    }
+
+    /**
+     * Set linear velocity of object by handle
+     */
+    public void setLinearVelocity(int handle, Vector3f velocity) {
+        physicsEngine.setLinearVelocity(handle, velocity);
+    }
+
+    /**
+     * Get linear velocity of object by handle into a store vector
+     */
+    public Vector3f getLinearVelocity(int handle, Vector3f store) {
+        return physicsEngine.getLinearVelocity(handle, store);
+    }
+
     /**
      * Set gravity
      */
@@ -1,44 +1,195 @@
 package com.example.physics;
 
+import java.util.ArrayList;
 import java.util.List;
 
+import com.bulletphysics.collision.dispatch.CollisionWorld;
+import com.bulletphysics.collision.shapes.BoxShape;
+import com.bulletphysics.collision.shapes.CapsuleShape;
+import com.bulletphysics.collision.shapes.ConvexShape;
+import com.bulletphysics.collision.shapes.SphereShape;
+import com.bulletphysics.linearmath.Transform;
+import com.example.util.LongIntMap;
 import com.jme3.bullet.PhysicsSpace;
+import com.jme3.bullet.collision.PhysicsCollisionObject;
 import com.jme3.bullet.collision.PhysicsRayTestResult;
 import com.jme3.bullet.objects.PhysicsRigidBody;
+import com.jme3.math.Quaternion;
 import com.jme3.math.Ray;
 import com.jme3.math.Vector3f;
 
 /**
- * Helper class for raycasting operations in the physics world
+ * Helper class for raycasting operations in the physics world.
+ *
+ * Rays are cast straight into the Bullet collision world with a reused
+ * closest-hit callback, so a ray costs no allocation on our side. Convex
+ * sweeps (sphere, capsule, box) work the same way with cached cast shapes.
+ * This scratch state makes an instance single-threaded; use one helper per
+ * thread.
  */
 public class RaycastHelper {
     
+    /**
+     * Hit fraction written by the batch API for rays that hit nothing
+     */
+    public static final float NO_HIT = -1f;
+    
     private final PhysicsSpace physicsSpace;
+    private final BodyRegistry bodies;
+    private GroundHeightCache groundCache;
+    
+    // Reusable ray state
+    private final CollisionWorld.ClosestRayResultCallback rayCallback;
+    private final Vector3f tempTo = new Vector3f();
+    
+    // Reusable sweep state
+    private final CollisionWorld.ClosestConvexResultCallback sweepCallback;
+    private final Transform sweepFrom = new Transform();
+    private final Transform sweepTo = new Transform();
+    private final javax.vecmath.Quat4f sweepRotation = new javax.vecmath.Quat4f();
+    private final SweepResult tempSweep = new SweepResult();
+    
+    // Spheres and boxes reuse one scaled unit shape. Capsules cannot be
+    // scaled without squashing their caps, so they are cached by dimensions,
+    // up to a limit so computed sizes cannot grow the cache without bound.
+    private static final int MAX_CAPSULE_SHAPES = 32;
+    // Smallest box half extent: jbullet keeps a 0.04 collision margin inside the box
+    private static final float MIN_BOX_HALF_EXTENT = 0.04f;
+    private final LongIntMap capsuleShapeIndex = new LongIntMap(MAX_CAPSULE_SHAPES);
+    private final List<ConvexShape> capsuleShapes = new ArrayList<>();
+    private final SphereShape unitSphere = new SphereShape(1f);
+    private final javax.vecmath.Vector3f sphereScale = new javax.vecmath.Vector3f();
+    private final BoxShape unitBox = new BoxShape(new javax.vecmath.Vector3f(1f, 1f, 1f));
+    private final javax.vecmath.Vector3f boxScale = new javax.vecmath.Vector3f();
     
     public RaycastHelper(PhysicsSpace physicsSpace) {
+        this(physicsSpace, null);
+    }
+    
+    /**
+     * Create a helper that reports body handles from the given registry
+     */
+    public RaycastHelper(PhysicsSpace physicsSpace, BodyRegistry bodies) {
         this.physicsSpace = physicsSpace;
+        this.bodies = bodies;
+        this.rayCallback = new CollisionWorld.ClosestRayResultCallback(
+                new javax.vecmath.Vector3f(), new javax.vecmath.Vector3f());
+        this.sweepCallback = new CollisionWorld.ClosestConvexResultCallback(
+                new javax.vecmath.Vector3f(), new javax.vecmath.Vector3f());
     }
     
     /**
-     * Perform a raycast and return the first hit
+     * Cast a single ray into the reusable callback. Returns true on a hit;
+     * the closest hit is then available in rayCallback.
      */
-    public RaycastResult raycast(Vector3f from, Vector3f to) {
-        List<PhysicsRayTestResult> results = physicsSpace.rayTest(from, to);
+    private boolean castRay(float fromX, float fromY, float fromZ, float toX, float toY, float toZ) {
+        rayCallback.rayFromWorld.set(fromX, fromY, fromZ);
+        rayCallback.rayToWorld.set(toX, toY, toZ);
+        rayCallback.closestHitFraction = 1f;
+        rayCallback.collisionObject = null;
         
-        if (!results.isEmpty()) {
-            PhysicsRayTestResult hit = results.get(0);
+        physicsSpace.getDynamicsWorld().rayTest(rayCallback.rayFromWorld, rayCallback.rayToWorld, rayCallback);
+        return rayCallback.collisionObject != null;
+    }
+    
+    private boolean castRay(Vector3f from, Vector3f to) {
+        return castRay(from.x, from.y, from.z, to.x, to.y, to.z);
+    }
+    
+    /**
+     * Get the jME collision object hit by the last cast
+     */
+    private PhysicsCollisionObject getHitObject() {
+        Object owner = rayCallback.collisionObject.getUserPointer();
+        return owner instanceof PhysicsCollisionObject ? (PhysicsCollisionObject) owner : null;
+    }
+    
+    /**
+     * Answer ground probes (findGround, isAboveGround, getDistanceToGround)
+     * from a ground height cache. Static ground then comes from the cache and
+     * only dynamic bodies are ray tested. Pass null to cast full rays again.
+     */
+    public void setGroundCache(GroundHeightCache groundCache) {
+        this.groundCache = groundCache;
+    }
+    
+    public GroundHeightCache getGroundCache() {
+        return groundCache;
+    }
+    
+    /**
+     * Perform a raycast and return the closest hit
+     */
+    public RaycastResult raycast(Vector3f from, Vector3f to) {
+        if (castRay(from, to)) {
+            PhysicsCollisionObject hitObject = getHitObject();
             return new RaycastResult(
                 true,
-                (PhysicsRigidBody) hit.getCollisionObject(),
-                from.add(to.subtract(from).mult(hit.getHitFraction())),
-                Vector3f.UNIT_Y, // Approximate normal
-                hit.getHitFraction()
+                hitObject instanceof PhysicsRigidBody ? (PhysicsRigidBody) hitObject : null,
+                new Vector3f(rayCallback.hitPointWorld.x, rayCallback.hitPointWorld.y, rayCallback.hitPointWorld.z),
+                new Vector3f(rayCallback.hitNormalWorld.x, rayCallback.hitNormalWorld.y, rayCallback.hitNormalWorld.z),
+                rayCallback.closestHitFraction
             );
         }
         
         return new RaycastResult(false, null, null, null, 0);
     }
     
+    /**
+     * Cast a batch of rays and write the closest hit of each into caller-owned
+     * arrays. Nothing is allocated per ray.
+     * @param origins Ray start points as xyz triples (at least count * 3 floats)
+     * @param ends Ray end points as xyz triples
+     * @param count Number of rays
+     * @param hitFractions Out: hit fraction along each ray, or NO_HIT
+     * @param hitPoints Out: hit points as xyz triples (may be null)
+     * @param hitNormals Out: world hit normals as xyz triples (may be null)
+     * @param hitHandles Out: registry handle of the hit body, or
+     *        BodyRegistry.INVALID_HANDLE (may be null)
+     * @return Number of rays that hit something
+     */
+    public int raycastBatch(float[] origins, float[] ends, int count,
+            float[] hitFractions, float[] hitPoints, float[] hitNormals, int[] hitHandles) {
+        return raycastBatch(origins, ends, 0, count, hitFractions, hitPoints, hitNormals, hitHandles);
+    }
+    
+    /**
+     * Cast rays [start, start + count) of a batch. Output arrays are indexed
+     * the same way as the inputs.
+     */
+    public int raycastBatch(float[] origins, float[] ends, int start, int count,
+            float[] hitFractions, float[] hitPoints, float[] hitNormals, int[] hitHandles) {
+        int hits = 0;
+        for (int i = start, end = start + count; i < end; i++) {
+            int v = i * 3;
+            boolean hit = castRay(origins[v], origins[v + 1], origins[v + 2], ends[v], ends[v + 1], ends[v + 2]);
+            
+            if (hit) {
+                hits++;
+                hitFractions[i] = rayCallback.closestHitFraction;
+                if (hitPoints != null) {
+                    hitPoints[v] = rayCallback.hitPointWorld.x;
+                    hitPoints[v + 1] = rayCallback.hitPointWorld.y;
+                    hitPoints[v + 2] = rayCallback.hitPointWorld.z;
+                }
+                if (hitNormals != null) {
+                    hitNormals[v] = rayCallback.hitNormalWorld.x;
+                    hitNormals[v + 1] = rayCallback.hitNormalWorld.y;
+                    hitNormals[v + 2] = rayCallback.hitNormalWorld.z;
+                }
+                if (hitHandles != null) {
+                    hitHandles[i] = bodies != null ? bodies.getHandle(getHitObject()) : BodyRegistry.INVALID_HANDLE;
+                }
+            } else {
+                hitFractions[i] = NO_HIT;
+                if (hitHandles != null) {
+                    hitHandles[i] = BodyRegistry.INVALID_HANDLE;
+                }
+            }
+        }
+        return hits;
+    }
+    
     /**
      * Perform a raycast in a direction with specified distance
      */
@@ -66,16 +217,29 @@ public class RaycastHelper {
      * Check if there's a clear line of sight between two points
      */
     public boolean hasLineOfSight(Vector3f from, Vector3f to) {
-        List<PhysicsRayTestResult> results = physicsSpace.rayTest(from, to);
-        return results.isEmpty();
+        return !castRay(from, to);
     }
     
     /**
      * Find the ground below a point
      */
     public RaycastResult findGround(Vector3f position, float maxDistance) {
+        if (groundCache != null) {
+            if (groundCache.probe(position, maxDistance, true)) {
+                int handle = groundCache.getProbeHandle();
+                return new RaycastResult(
+                    true,
+                    bodies != null ? bodies.getBody(handle) : null,
+                    tempTo.set(position.x, groundCache.getProbeHeight(), position.z),
+                    groundCache.getProbeNormal(new Vector3f()),
+                    (position.y - groundCache.getProbeHeight()) / maxDistance
+                );
+            }
+            return new RaycastResult(false, null, null, null, 0);
+        }
+        
         Vector3f from = position;
-        Vector3f to = position.add(0, -maxDistance, 0);
+        Vector3f to = tempTo.set(position).addLocal(0, -maxDistance, 0);
         return raycast(from, to);
     }
     
@@ -83,51 +247,213 @@ public class RaycastHelper {
      * Check if a point is above ground
      */
     public boolean isAboveGround(Vector3f position, float maxDistance) {
-        RaycastResult result = findGround(position, maxDistance);
-        return result.isHit();
+        if (groundCache != null) {
+            return groundCache.isAboveGround(position, maxDistance, true);
+        }
+        return castRay(position.x, position.y, position.z, position.x, position.y - maxDistance, position.z);
     }
     
     /**
      * Get the distance to ground
      */
     public float getDistanceToGround(Vector3f position, float maxDistance) {
-        RaycastResult result = findGround(position, maxDistance);
-        if (result.isHit()) {
-            return position.distance(result.getHitPoint());
+        if (groundCache != null) {
+            return groundCache.getDistanceToGround(position, maxDistance, true);
+        }
+        if (castRay(position.x, position.y, position.z, position.x, position.y - maxDistance, position.z)) {
+            return rayCallback.closestHitFraction * maxDistance;
         }
         return maxDistance;
     }
     
     /**
-     * Perform a sphere cast (approximate)
+     * Perform a sphere cast. Uses a true sphere sweep; prefer sphereSweep
+     * with a reused SweepResult in hot code.
      */
     public RaycastResult sphereCast(Vector3f from, Vector3f to, float radius) {
-        Vector3f direction = to.subtract(from).normalize();
-        Vector3f perpendicular = direction.cross(Vector3f.UNIT_Y).normalize();
+        if (sphereSweep(from, to, radius, tempSweep)) {
+            return new RaycastResult(true, tempSweep.hitObject, tempSweep.hitPoint,
+                    tempSweep.hitNormal, tempSweep.hitFraction);
+        }
+        return new RaycastResult(false, null, null, null, 0);
+    }
+    
+    /**
+     * Sweep a sphere from one point to another
+     * @param store Receives the closest hit
+     * @return True if the sphere hit something
+     */
+    public boolean sphereSweep(Vector3f from, Vector3f to, float radius, SweepResult store) {
+        return sweep(getSphereShape(radius), from, to, null, store);
+    }
+    
+    /**
+     * Sweep a Y-axis capsule from one point to another
+     * @param height Distance between the centres of the end caps
+     * @param rotation Capsule orientation (null for upright)
+     * @param store Receives the closest hit
+     * @return True if the capsule hit something
+     */
+    public boolean capsuleSweep(Vector3f from, Vector3f to, float radius, float height,
+            Quaternion rotation, SweepResult store) {
+        return sweep(getCapsuleShape(radius, height), from, to, rotation, store);
+    }
+    
+    /**
+     * Sweep a box from one point to another
+     * @param halfExtents Box half extents; values below 0.04 (the collision
+     *        margin) sweep as 0.04
+     * @param rotation Box orientation (null for axis-aligned)
+     * @param store Receives the closest hit
+     * @return True if the box hit something
+     */
+    public boolean boxSweep(Vector3f from, Vector3f to, Vector3f halfExtents,
+            Quaternion rotation, SweepResult store) {
+        return sweep(getBoxShape(halfExtents.x, halfExtents.y, halfExtents.z), from, to, rotation, store);
+    }
+    
+    /**
+     * Sweep a batch of spheres. Arguments and results follow raycastBatch:
+     * flat xyz arrays in, caller-owned arrays out, NO_HIT for misses.
+     * @return Number of sweeps that hit something
+     */
+    public int sphereSweepBatch(float[] origins, float[] ends, int count, float radius,
+            float[] hitFractions, float[] hitPoints, float[] hitNormals, int[] hitHandles) {
+        return sweepBatch(getSphereShape(radius), origins, ends, count,
+                hitFractions, hitPoints, hitNormals, hitHandles);
+    }
+    
+    /**
+     * Sweep a batch of upright capsules
+     * @return Number of sweeps that hit something
+     */
+    public int capsuleSweepBatch(float[] origins, float[] ends, int count, float radius, float height,
+            float[] hitFractions, float[] hitPoints, float[] hitNormals, int[] hitHandles) {
+        return sweepBatch(getCapsuleShape(radius, height), origins, ends, count,
+                hitFractions, hitPoints, hitNormals, hitHandles);
+    }
+    
+    /**
+     * Sweep a batch of axis-aligned boxes
+     * @return Number of sweeps that hit something
+     */
+    public int boxSweepBatch(float[] origins, float[] ends, int count, Vector3f halfExtents,
+            float[] hitFractions, float[] hitPoints, float[] hitNormals, int[] hitHandles) {
+        return sweepBatch(getBoxShape(halfExtents.x, halfExtents.y, halfExtents.z), origins, ends, count,
+                hitFractions, hitPoints, hitNormals, hitHandles);
+    }
+    
+    private boolean sweep(ConvexShape shape, Vector3f from, Vector3f to, Quaternion rotation, SweepResult store) {
+        if (rotation != null) {
+            sweepRotation.set(rotation.getX(), rotation.getY(), rotation.getZ(), rotation.getW());
+        } else {
+            sweepRotation.set(0f, 0f, 0f, 1f);
+        }
         
-        // Cast multiple rays in a circle pattern
-        int rayCount = 8;
-        float closestDistance = Float.MAX_VALUE;
-        RaycastResult closestHit = null;
+        if (castSweep(shape, from.x, from.y, from.z, to.x, to.y, to.z)) {
+            PhysicsCollisionObject hitObject = getSweepHitObject();
+            store.set(sweepCallback.closestHitFraction,
+                    sweepCallback.hitPointWorld, sweepCallback.hitNormalWorld,
+                    hitObject instanceof PhysicsRigidBody ? (PhysicsRigidBody) hitObject : null,
+                    bodies != null ? bodies.getHandle(hitObject) : BodyRegistry.INVALID_HANDLE);
+            return true;
+        }
+        store.reset();
+        return false;
+    }
+    
+    private int sweepBatch(ConvexShape shape, float[] origins, float[] ends, int count,
+            float[] hitFractions, float[] hitPoints, float[] hitNormals, int[] hitHandles) {
+        sweepRotation.set(0f, 0f, 0f, 1f);
         
-        for (int i = 0; i < rayCount; i++) {
-            float angle = (float) (2 * Math.PI * i / rayCount);
-            Vector3f offset = perpendicular.mult((float) Math.cos(angle) * radius);
+        int hits = 0;
+        for (int i = 0; i < count; i++) {
+            int v = i * 3;
+            boolean hit = castSweep(shape, origins[v], origins[v + 1], origins[v + 2], ends[v], ends[v + 1], ends[v + 2]);
             
-            Vector3f rayStart = from.add(offset);
-            Vector3f rayEnd = to.add(offset);
-            
-            RaycastResult result = raycast(rayStart, rayEnd);
-            if (result.isHit()) {
-                float distance = result.getDistance(from);
-                if (distance < closestDistance) {
-                    closestDistance = distance;
-                    closestHit = result;
+            if (hit) {
+                hits++;
+                hitFractions[i] = sweepCallback.closestHitFraction;
+                if (hitPoints != null) {
+                    hitPoints[v] = sweepCallback.hitPointWorld.x;
+                    hitPoints[v + 1] = sweepCallback.hitPointWorld.y;
+                    hitPoints[v + 2] = sweepCallback.hitPointWorld.z;
+                }
+                if (hitNormals != null) {
+                    hitNormals[v] = sweepCallback.hitNormalWorld.x;
+                    hitNormals[v + 1] = sweepCallback.hitNormalWorld.y;
+                    hitNormals[v + 2] = sweepCallback.hitNormalWorld.z;
+                }
+                if (hitHandles != null) {
+                    hitHandles[i] = bodies != null ? bodies.getHandle(getSweepHitObject()) : BodyRegistry.INVALID_HANDLE;
+                }
+            } else {
+                hitFractions[i] = NO_HIT;
+                if (hitHandles != null) {
+                    hitHandles[i] = BodyRegistry.INVALID_HANDLE;
                 }
             }
         }
+        return hits;
+    }
+    
+    /**
+     * Sweep a shape into the reusable callback using the current sweepRotation
+     */
+    private boolean castSweep(ConvexShape shape, float fromX, float fromY, float fromZ,
+            float toX, float toY, float toZ) {
+        sweepFrom.setIdentity();
+        sweepFrom.setRotation(sweepRotation);
+        sweepFrom.origin.set(fromX, fromY, fromZ);
+        sweepTo.setIdentity();
+        sweepTo.setRotation(sweepRotation);
+        sweepTo.origin.set(toX, toY, toZ);
+        
+        sweepCallback.convexFromWorld.set(fromX, fromY, fromZ);
+        sweepCallback.convexToWorld.set(toX, toY, toZ);
+        sweepCallback.closestHitFraction = 1f;
+        sweepCallback.hitCollisionObject = null;
         
-        return closestHit != null ? closestHit : new RaycastResult(false, null, null, null, 0);
+        physicsSpace.getDynamicsWorld().convexSweepTest(shape, sweepFrom, sweepTo, sweepCallback);
+        return sweepCallback.hitCollisionObject != null;
+    }
+    
+    private PhysicsCollisionObject getSweepHitObject() {
+        Object owner = sweepCallback.hitCollisionObject.getUserPointer();
+        return owner instanceof PhysicsCollisionObject ? (PhysicsCollisionObject) owner : null;
+    }
+    
+    private ConvexShape getSphereShape(float radius) {
+        // A sphere's margin is its scaled radius, so uniform scaling is exact
+        sphereScale.set(radius, radius, radius);
+        unitSphere.setLocalScaling(sphereScale);
+        return unitSphere;
+    }
+    
+    private ConvexShape getCapsuleShape(float radius, float height) {
+        long key = ((long) Float.floatToIntBits(radius) << 32) | (Float.floatToIntBits(height) & 0xFFFFFFFFL);
+        int index = capsuleShapeIndex.get(key, -1);
+        if (index < 0) {
+            if (capsuleShapes.size() == MAX_CAPSULE_SHAPES) {
+                // Too many distinct sizes: start over rather than keep them all
+                capsuleShapes.clear();
+                capsuleShapeIndex.clear();
+            }
+            index = capsuleShapes.size();
+            capsuleShapes.add(new CapsuleShape(radius, height));
+            capsuleShapeIndex.put(key, index);
+        }
+        return capsuleShapes.get(index);
+    }
+    
+    private ConvexShape getBoxShape(float halfX, float halfY, float halfZ) {
+        // Box scaling keeps the margin outside, so a scaled unit box has exactly
+        // these extents. Below the margin the inner box would turn inside out,
+        // so smaller extents sweep as MIN_BOX_HALF_EXTENT.
+        boxScale.set(Math.max(halfX, MIN_BOX_HALF_EXTENT), Math.max(halfY, MIN_BOX_HALF_EXTENT),
+                Math.max(halfZ, MIN_BOX_HALF_EXTENT));
+        unitBox.setLocalScaling(boxScale);
+        return unitBox;
     }
     
     /**
@@ -140,17 +466,14 @@ public class RaycastHelper {
             float angle = (float) (Math.random() * 2 * Math.PI);
             float distance = (float) (Math.random() * searchRadius);
             
-            Vector3f testPos = position.add(
-                (float) Math.cos(angle) * distance,
-                0,
-                (float) Math.sin(angle) * distance
-            );
+            float x = position.x + (float) Math.cos(angle) * distance;
+            float z = position.z + (float) Math.sin(angle) * distance;
             
-            RaycastResult groundCheck = findGround(testPos, maxDropDistance);
-            if (groundCheck.isHit()) {
-                Vector3f normal = groundCheck.getHitNormal();
-                if (normal != null && normal.dot(Vector3f.UNIT_Y) > 0.7f) {
-                    return groundCheck.getHitPoint().add(0, 0.1f, 0);
+            if (castRay(x, position.y, z, x, position.y - maxDropDistance, z)) {
+                // Only accept ground that is flat enough to stand on
+                if (rayCallback.hitNormalWorld.y > 0.7f) {
+                    return new Vector3f(rayCallback.hitPointWorld.x, rayCallback.hitPointWorld.y + 0.1f,
+                            rayCallback.hitPointWorld.z);
                 }
             }
         }
@@ -158,6 +481,70 @@ public class RaycastHelper {
         return position;
     }
     
+    /**
+     * Reusable result of a convex sweep
+     */
+    public static class SweepResult {
+        private boolean hit;
+        private float hitFraction;
+        private final Vector3f hitPoint = new Vector3f();
+        private final Vector3f hitNormal = new Vector3f();
+        private PhysicsRigidBody hitObject;
+        private int hitHandle = BodyRegistry.INVALID_HANDLE;
+        
+        void set(float hitFraction, javax.vecmath.Vector3f point, javax.vecmath.Vector3f normal,
+                PhysicsRigidBody hitObject, int hitHandle) {
+            this.hit = true;
+            this.hitFraction = hitFraction;
+            this.hitPoint.set(point.x, point.y, point.z);
+            this.hitNormal.set(normal.x, normal.y, normal.z);
+            this.hitObject = hitObject;
+            this.hitHandle = hitHandle;
+        }
+        
+        void reset() {
+            hit = false;
+            hitFraction = NO_HIT;
+            hitPoint.set(0, 0, 0);
+            hitNormal.set(0, 0, 0);
+            hitObject = null;
+            hitHandle = BodyRegistry.INVALID_HANDLE;
+        }
+        
+        public boolean isHit() {
+            return hit;
+        }
+        
+        /**
+         * Get the fraction of the sweep travelled before the hit
+         */
+        public float getHitFraction() {
+            return hitFraction;
+        }
+        
+        /**
+         * Get the contact point in world space, owned by this result
+         */
+        public Vector3f getHitPoint() {
+            return hitPoint;
+        }
+        
+        /**
+         * Get the contact normal in world space, owned by this result
+         */
+        public Vector3f getHitNormal() {
+            return hitNormal;
+        }
+        
+        public PhysicsRigidBody getHitObject() {
+            return hitObject;
+        }
+        
+        public int getHitHandle() {
+            return hitHandle;
+        }
+    }
+    
     /**
      * Raycast result container
      */
@@ -189,10 +576,24 @@ public class RaycastHelper {
             return hitPoint != null ? hitPoint.clone() : null;
         }
         
+        /**
+         * Copy the hit point into a store vector (unchanged if there is no hit)
+         */
+        public Vector3f getHitPoint(Vector3f store) {
+            return hitPoint != null ? store.set(hitPoint) : store;
+        }
+        
         public Vector3f getHitNormal() {
             return hitNormal != null ? hitNormal.clone() : null;
         }
         
+        /**
+         * Copy the hit normal into a store vector (unchanged if there is no hit)
+         */
+        public Vector3f getHitNormal(Vector3f store) {
+            return hitNormal != null ? store.set(hitNormal) : store;
+        }
+        
         public float getHitFraction() {
             return hitFraction;
         }
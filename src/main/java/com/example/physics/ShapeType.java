@@ -0,0 +1,78 @@
+package com.example.physics;
+
+import com.jme3.bullet.collision.shapes.CollisionShape;
+
+/**
+ * Collision shape categories used to dispatch collision handlers.
+ * Each type's key matches the names used in collision handler keys such as
+ * "sphere-box" (the shape class name without "CollisionShape", lower case)
+ */
+public enum ShapeType {
+    SPHERE("sphere"),
+    BOX("box"),
+    CAPSULE("capsule"),
+    CYLINDER("cylinder"),
+    CONE("cone"),
+    PLANE("plane"),
+    MESH("mesh"),
+    HULL("hull"),
+    COMPOUND("compound"),
+    HEIGHTFIELD("heightfield"),
+    GIMPACT("gimpact"),
+    SIMPLEX("simplex"),
+    OTHER("other");
+
+    private static final ShapeType[] VALUES = values();
+
+    private final String key;
+
+    ShapeType(String key) {
+        this.key = key;
+    }
+
+    /**
+     * Get the name used for this type in collision handler keys
+     */
+    public String getKey() {
+        return key;
+    }
+
+    /**
+     * Get the shape type for a collision shape. Resolved by class name, so it
+     * should be computed once per body rather than per collision.
+     */
+    public static ShapeType of(CollisionShape shape) {
+        if (shape == null) {
+            return OTHER;
+        }
+        String className = shape.getClass().getSimpleName();
+        ShapeType type = fromKey(className.toLowerCase().replace("collisionshape", ""));
+        return type != null ? type : OTHER;
+    }
+
+    /**
+     * Get the shape type for a handler key name, or null if unknown
+     */
+    public static ShapeType fromKey(String key) {
+        for (ShapeType type : VALUES) {
+            if (type.key.equals(key)) {
+                return type;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Get the shape type for an ordinal stored in a primitive array
+     */
+    public static ShapeType fromOrdinal(int ordinal) {
+        return VALUES[ordinal];
+    }
+
+    /**
+     * Get the number of shape types
+     */
+    public static int count() {
+        return VALUES.length;
+    }
+}
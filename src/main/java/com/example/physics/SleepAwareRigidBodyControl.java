@@ -0,0 +1,143 @@
+package com.example.physics;
+
+import com.jme3.bullet.collision.shapes.CollisionShape;
+import com.jme3.bullet.control.RigidBodyControl;
+import com.jme3.math.Matrix3f;
+import com.jme3.math.Quaternion;
+import com.jme3.math.Vector3f;
+import com.jme3.scene.Spatial;
+
+/**
+ * RigidBodyControl that only writes its transform back to the spatial when
+ * the body really moved.
+ *
+ * Sleeping bodies are skipped once their final transform has been written,
+ * and movement below a small epsilon (solver jitter in a settled pile) is
+ * ignored, so the spatial is not flagged for a transform and world bound
+ * refresh up the scene graph. Skipped movement is not lost: it is compared
+ * against the last transform actually written, so it is applied once it
+ * adds up past the epsilon. Setting the physics location or rotation, or
+ * a new spatial, always syncs on the next update, even while asleep.
+ */
+public class SleepAwareRigidBodyControl extends RigidBodyControl {
+
+    public static final float DEFAULT_LOCATION_EPSILON = 0.0005f;
+    public static final float DEFAULT_ROTATION_EPSILON = 0.00001f;
+
+    private float locationEpsilonSquared = DEFAULT_LOCATION_EPSILON * DEFAULT_LOCATION_EPSILON;
+    private float rotationEpsilon = DEFAULT_ROTATION_EPSILON;
+
+    // Transform last written to the spatial
+    private final Vector3f syncedLocation = new Vector3f();
+    private final Quaternion syncedRotation = new Quaternion();
+    private boolean synced;
+    private boolean settled;
+
+    private long skippedSyncs;
+
+    public SleepAwareRigidBodyControl(float mass) {
+        super(mass);
+    }
+
+    public SleepAwareRigidBodyControl(CollisionShape shape, float mass) {
+        super(shape, mass);
+    }
+
+    @Override
+    public void update(float tpf) {
+        if (!enabled || spatial == null) {
+            return;
+        }
+        if (isKinematic() && isKinematicSpatial()) {
+            // Spatial drives the body, nothing to write back
+            super.update(tpf);
+            return;
+        }
+
+        boolean active = isActive();
+        if (!active && settled) {
+            skippedSyncs++;
+            return;
+        }
+
+        Vector3f location = getMotionState().getWorldLocation();
+        Quaternion rotation = getMotionState().getWorldRotationQuat();
+        if (synced && !hasMoved(location, rotation)) {
+            // Sleeping bodies keep this transform until they wake up
+            settled = !active;
+            skippedSyncs++;
+            return;
+        }
+
+        getMotionState().applyTransform(spatial);
+        syncedLocation.set(location);
+        syncedRotation.set(rotation);
+        synced = true;
+        settled = !active;
+    }
+
+    @Override
+    public void setSpatial(Spatial spatial) {
+        super.setSpatial(spatial);
+        invalidateSync();
+    }
+
+    @Override
+    public void setPhysicsLocation(Vector3f location) {
+        super.setPhysicsLocation(location);
+        // Teleporting does not wake the body
+        invalidateSync();
+    }
+
+    @Override
+    public void setPhysicsRotation(Quaternion rotation) {
+        super.setPhysicsRotation(rotation);
+        invalidateSync();
+    }
+
+    @Override
+    public void setPhysicsRotation(Matrix3f rotation) {
+        super.setPhysicsRotation(rotation);
+        invalidateSync();
+    }
+
+    private boolean hasMoved(Vector3f location, Quaternion rotation) {
+        if (syncedLocation.distanceSquared(location) > locationEpsilonSquared) {
+            return true;
+        }
+        // |dot| is 1 for identical orientations (q and -q are the same rotation)
+        return 1f - Math.abs(syncedRotation.dot(rotation)) > rotationEpsilon;
+    }
+
+    /**
+     * Force the next update to write the transform, e.g. after the spatial
+     * was moved by hand
+     */
+    public void invalidateSync() {
+        synced = false;
+        settled = false;
+    }
+
+    /**
+     * Set how far the body must move, in world units, before the spatial is
+     * updated
+     */
+    public void setLocationEpsilon(float epsilon) {
+        this.locationEpsilonSquared = epsilon * epsilon;
+    }
+
+    /**
+     * Set how much the orientation must change, as 1 - |dot| of the two
+     * quaternions, before the spatial is updated
+     */
+    public void setRotationEpsilon(float epsilon) {
+        this.rotationEpsilon = epsilon;
+    }
+
+    /**
+     * Get the number of frames in which the write-back was skipped
+     */
+    public long getSkippedSyncs() {
+        return skippedSyncs;
+    }
+}
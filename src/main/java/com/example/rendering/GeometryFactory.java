@@ -4,39 +4,52 @@ import com.jme3.asset.AssetManager;
 import com.jme3.material.Material;
 import com.jme3.math.ColorRGBA;
 import com.jme3.math.Vector3f;
+import com.jme3.renderer.Camera;
 import com.jme3.scene.Geometry;
 import com.jme3.scene.Mesh;
-import com.jme3.scene.shape.Box;
-import com.jme3.scene.shape.Cylinder;
-import com.jme3.scene.shape.Quad;
-import com.jme3.scene.shape.Sphere;
 
 /**
- * Factory for creating visual geometries that match physics shapes
+ * Factory for creating visual geometries that match physics shapes.
+ * Meshes and materials come from shared caches, so identical objects use one
+ * mesh and one material; call release() when a geometry is removed.
+ * With a LOD camera set, curved shapes get baked LOD levels and a
+ * ScreenSpaceLodControl, so distant ones draw far fewer triangles.
  */
 public class GeometryFactory {
     
     private AssetManager assetManager;
+    private final MeshCache meshCache;
+    private final MaterialCache materialCache;
+    private Camera lodCamera;
     
     public GeometryFactory(AssetManager assetManager) {
+        this(assetManager, new MeshCache(), new MaterialCache(assetManager));
+    }
+    
+    /**
+     * Create a factory that shares its caches with other code
+     */
+    public GeometryFactory(AssetManager assetManager, MeshCache meshCache, MaterialCache materialCache) {
         this.assetManager = assetManager;
+        this.meshCache = meshCache;
+        this.materialCache = materialCache;
     }
     
     /**
      * Create a sphere geometry
      */
     public Geometry createSphere(String name, float radius, ColorRGBA color) {
-        Sphere sphere = new Sphere(32, 32, radius);
+        Mesh sphere = meshCache.acquireSphere(32, 32, radius);
         Geometry geom = new Geometry(name, sphere);
         geom.setMaterial(createMaterial(color));
-        return geom;
+        return addLod(geom);
     }
     
     /**
      * Create a box geometry
      */
     public Geometry createBox(String name, Vector3f halfExtents, ColorRGBA color) {
-        Box box = new Box(halfExtents.x, halfExtents.y, halfExtents.z);
+        Mesh box = meshCache.acquireBox(halfExtents.x, halfExtents.y, halfExtents.z);
         Geometry geom = new Geometry(name, box);
         geom.setMaterial(createMaterial(color));
         return geom;
@@ -46,7 +59,7 @@ public class GeometryFactory {
      * Create a box geometry from dimensions
      */
     public Geometry createBox(String name, float width, float height, float depth, ColorRGBA color) {
-        Box box = new Box(width/2, height/2, depth/2);
+        Mesh box = meshCache.acquireBox(width/2, height/2, depth/2);
         Geometry geom = new Geometry(name, box);
         geom.setMaterial(createMaterial(color));
         return geom;
@@ -57,30 +70,30 @@ public class GeometryFactory {
      */
     public Geometry createCapsule(String name, float radius, float height, ColorRGBA color) {
         // Create capsule using cylinder with spheres (approximation)
-        Cylinder cylinder = new Cylinder(16, 32, radius, height, true);
+        Mesh cylinder = meshCache.acquireCylinder(16, 32, radius, height);
         Geometry geom = new Geometry(name, cylinder);
         geom.setMaterial(createMaterial(color));
-        return geom;
+        return addLod(geom);
     }
     
     /**
      * Create a cylinder geometry
      */
     public Geometry createCylinder(String name, Vector3f halfExtents, ColorRGBA color) {
-        Cylinder cylinder = new Cylinder(16, 32, halfExtents.x, halfExtents.y * 2, true);
+        Mesh cylinder = meshCache.acquireCylinder(16, 32, halfExtents.x, halfExtents.y * 2);
         Geometry geom = new Geometry(name, cylinder);
         geom.setMaterial(createMaterial(color));
-        return geom;
+        return addLod(geom);
     }
     
     /**
      * Create a cylinder geometry from dimensions
      */
     public Geometry createCylinder(String name, float radius, float height, ColorRGBA color) {
-        Cylinder cylinder = new Cylinder(16, 32, radius, height, true);
+        Mesh cylinder = meshCache.acquireCylinder(16, 32, radius, height);
         Geometry geom = new Geometry(name, cylinder);
         geom.setMaterial(createMaterial(color));
-        return geom;
+        return addLod(geom);
     }
     
     /**
@@ -88,17 +101,17 @@ public class GeometryFactory {
      */
     public Geometry createCone(String name, float radius, float height, ColorRGBA color) {
         // Create cone using cylinder with top radius 0
-        Cylinder cone = new Cylinder(16, 32, 0, radius, height, true, false);
+        Mesh cone = meshCache.acquireCone(16, 32, radius, height);
         Geometry geom = new Geometry(name, cone);
         geom.setMaterial(createMaterial(color));
-        return geom;
+        return addLod(geom);
     }
     
     /**
      * Create a ground plane geometry
      */
     public Geometry createGroundPlane(String name, float size, ColorRGBA color) {
-        Quad quad = new Quad(size, size);
+        Mesh quad = meshCache.acquireQuad(size, size);
         Geometry geom = new Geometry(name, quad);
         geom.setMaterial(createMaterial(color));
         geom.rotate(-1.5708f, 0, 0); // Rotate to lie flat
@@ -111,18 +124,51 @@ public class GeometryFactory {
      */
     public Geometry createWireframe(String name, Mesh mesh, ColorRGBA color) {
         Geometry geom = new Geometry(name, mesh);
-        Material mat = createWireframeMaterial(color);
-        geom.setMaterial(mat);
+        geom.setMaterial(materialCache.acquireWireframe(color));
+        return geom;
+    }
+    
+    /**
+     * Give curved shapes mesh LOD chosen by screen size as seen from the
+     * camera. Applies to geometries created afterwards; pass null to stop.
+     */
+    public void setLodCamera(Camera camera) {
+        this.lodCamera = camera;
+        if (camera != null && !meshCache.isLodEnabled()) {
+            meshCache.setLodReductions(MeshCache.DEFAULT_LOD_REDUCTIONS);
+        }
+    }
+    
+    private Geometry addLod(Geometry geom) {
+        if (lodCamera != null && geom.getMesh().getNumLodLevels() > 1) {
+            geom.addControl(new ScreenSpaceLodControl(lodCamera));
+        }
         return geom;
     }
     
     /**
-     * Create a basic unshaded material
+     * Get a shared basic unshaded material
      */
     private Material createMaterial(ColorRGBA color) {
-        Material mat = new Material(assetManager, "Common/MatDefs/Misc/Unshaded.j3md");
-        mat.setColor("Color", color);
-        return mat;
+        return materialCache.acquireUnshaded(color);
+    }
+    
+    /**
+     * Give a geometry's cached mesh and material back to the caches. Call it
+     * once the geometry is removed from the scene; meshes and materials that
+     * did not come from the caches are left alone.
+     */
+    public void release(Geometry geom) {
+        meshCache.release(geom.getMesh());
+        materialCache.release(geom.getMaterial());
+    }
+    
+    public MeshCache getMeshCache() {
+        return meshCache;
+    }
+    
+    public MaterialCache getMaterialCache() {
+        return materialCache;
     }
     
     /**
@@ -138,16 +184,6 @@ public class GeometryFactory {
         return mat;
     }
     
-    /**
-     * Create a wireframe material
-     */
-    private Material createWireframeMaterial(ColorRGBA color) {
-        Material mat = new Material(assetManager, "Common/MatDefs/Misc/Unshaded.j3md");
-        mat.setColor("Color", color);
-        mat.getAdditionalRenderState().setWireframe(true);
-        return mat;
-    }
-    
     /**
      * Create a textured material
      */
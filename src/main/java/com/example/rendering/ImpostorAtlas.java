@@ -0,0 +1,241 @@
+package com.example.rendering;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import com.jme3.bounding.BoundingBox;
+import com.jme3.bounding.BoundingSphere;
+import com.jme3.bounding.BoundingVolume;
+import com.jme3.light.AmbientLight;
+import com.jme3.light.DirectionalLight;
+import com.jme3.material.Material;
+import com.jme3.math.ColorRGBA;
+import com.jme3.math.Vector3f;
+import com.jme3.renderer.Camera;
+import com.jme3.renderer.RenderManager;
+import com.jme3.renderer.ViewPort;
+import com.jme3.scene.Geometry;
+import com.jme3.scene.Mesh;
+import com.jme3.scene.Node;
+import com.jme3.texture.FrameBuffer;
+import com.jme3.texture.Image;
+import com.jme3.texture.Texture;
+import com.jme3.texture.Texture2D;
+
+/**
+ * Texture atlas with one pre-rendered view of each mesh and material pair,
+ * used by ImpostorRenderer to draw distant objects as flat quads.
+ *
+ * Each pair gets a square tile the first time it is requested. All tiles are
+ * laid out in one scene and rendered in a single offscreen pass through an
+ * orthographic camera, which only runs in frames where new tiles were added.
+ * Tiles show the object from the front (looking down -Z), so impostors suit
+ * roughly symmetric shapes that are too far away to show their orientation.
+ */
+public class ImpostorAtlas {
+
+    public static final int DEFAULT_ATLAS_SIZE = 1024;
+    public static final int DEFAULT_TILE_SIZE = 128;
+
+    // Part of a tile the object fills, leaving a margin against bleeding
+    static final float TILE_FILL = 0.95f;
+
+    private final int columns;
+    private final int maxTiles;
+    private final Texture2D texture;
+    private final FrameBuffer frameBuffer;
+    private final Camera bakeCamera;
+    private final Node bakeScene = new Node("Impostor Atlas Scene");
+    private final Map<TileKey, Integer> tiles = new HashMap<>();
+
+    private ViewPort viewPort;
+    private boolean dirty;
+
+    public ImpostorAtlas() {
+        this(DEFAULT_ATLAS_SIZE, DEFAULT_TILE_SIZE);
+    }
+
+    /**
+     * Create an atlas
+     * @param atlasSize Width and height of the atlas texture in pixels
+     * @param tileSize Width and height of each tile in pixels
+     */
+    public ImpostorAtlas(int atlasSize, int tileSize) {
+        if (tileSize <= 0 || atlasSize < tileSize) {
+            throw new IllegalArgumentException("Invalid atlas size " + atlasSize + " for tile size " + tileSize);
+        }
+        this.columns = atlasSize / tileSize;
+        this.maxTiles = columns * columns;
+
+        texture = new Texture2D(atlasSize, atlasSize, Image.Format.RGBA8);
+        texture.setMinFilter(Texture.MinFilter.BilinearNoMipMaps);
+        texture.setMagFilter(Texture.MagFilter.Bilinear);
+        frameBuffer = new FrameBuffer(atlasSize, atlasSize, 1);
+        frameBuffer.addColorTarget(FrameBuffer.FrameBufferTarget.newTarget(texture));
+        frameBuffer.setDepthTarget(FrameBuffer.FrameBufferTarget.newTarget(Image.Format.Depth));
+
+        // One world unit per tile, tile (0, 0) in the bottom left corner
+        bakeCamera = new Camera(atlasSize, atlasSize);
+        bakeCamera.setParallelProjection(true);
+        bakeCamera.setFrustum(1f, 200f, 0f, columns, columns, 0f);
+        bakeCamera.setLocation(new Vector3f(0f, 0f, 100f));
+        bakeCamera.lookAtDirection(new Vector3f(0f, 0f, -1f), Vector3f.UNIT_Y);
+
+        bakeScene.addLight(new AmbientLight(ColorRGBA.White.mult(0.6f)));
+        bakeScene.addLight(new DirectionalLight(new Vector3f(-0.4f, -0.6f, -1f).normalizeLocal(), ColorRGBA.White));
+    }
+
+    /**
+     * Get the tile for a mesh and material, adding it if it is new
+     * @return The tile index, or -1 if the atlas is full
+     */
+    public int getTile(Mesh mesh, Material material) {
+        TileKey key = new TileKey(mesh, material);
+        Integer tile = tiles.get(key);
+        if (tile != null) {
+            return tile;
+        }
+        if (tiles.size() == maxTiles) {
+            return -1;
+        }
+        int index = tiles.size();
+        tiles.put(key, index);
+        addToScene(index, mesh, material);
+        dirty = true;
+        return index;
+    }
+
+    private void addToScene(int tile, Mesh mesh, Material material) {
+        // The bake draws a plain geometry, so instanced materials need a copy
+        Material bakeMaterial = material.clone();
+        if (bakeMaterial.getParam("UseInstancing") != null) {
+            bakeMaterial.clearParam("UseInstancing");
+        }
+
+        Geometry geometry = new Geometry("Impostor Tile " + tile, mesh);
+        geometry.setMaterial(bakeMaterial);
+
+        // Fit the mesh bound into its tile
+        BoundingVolume bound = mesh.getBound();
+        float scale = 0.5f * TILE_FILL / Math.max(getBoundRadius(bound), 0.0001f);
+        Vector3f center = bound.getCenter();
+        geometry.setLocalScale(scale);
+        geometry.setLocalTranslation(
+                getTileColumn(tile) + 0.5f - center.x * scale,
+                getTileRow(tile) + 0.5f - center.y * scale,
+                -center.z * scale);
+        bakeScene.attachChild(geometry);
+    }
+
+    /**
+     * Render new tiles into the atlas during this frame. Call from an app
+     * state update, before rendering.
+     */
+    public void update(RenderManager renderManager) {
+        if (!dirty) {
+            return;
+        }
+        if (viewPort == null) {
+            viewPort = renderManager.createPreView("Impostor Atlas", bakeCamera);
+            viewPort.setClearFlags(true, true, true);
+            viewPort.setBackgroundColor(new ColorRGBA(0f, 0f, 0f, 0f));
+            viewPort.setOutputFrameBuffer(frameBuffer);
+            viewPort.attachScene(bakeScene);
+        }
+        bakeScene.updateLogicalState(0f);
+        bakeScene.updateGeometricState();
+        viewPort.setEnabled(true);
+        dirty = false;
+    }
+
+    /**
+     * Stop the offscreen pass once it has rendered. Call after rendering.
+     */
+    public void postRender() {
+        if (viewPort != null && viewPort.isEnabled()) {
+            viewPort.setEnabled(false);
+        }
+    }
+
+    /**
+     * Remove the offscreen view
+     */
+    public void cleanup(RenderManager renderManager) {
+        if (viewPort != null) {
+            renderManager.removePreView(viewPort);
+            viewPort = null;
+        }
+        dirty = !tiles.isEmpty();
+    }
+
+    public Texture2D getTexture() {
+        return texture;
+    }
+
+    public int getTileCount() {
+        return tiles.size();
+    }
+
+    public int getMaxTiles() {
+        return maxTiles;
+    }
+
+    /**
+     * Get the width and height of a tile in texture coordinates
+     */
+    public float getTileSpan() {
+        return 1f / columns;
+    }
+
+    public int getTileColumn(int tile) {
+        return tile % columns;
+    }
+
+    public int getTileRow(int tile) {
+        return tile / columns;
+    }
+
+    /**
+     * Get the radius of a sphere enclosing a bounding volume
+     */
+    static float getBoundRadius(BoundingVolume bound) {
+        if (bound instanceof BoundingSphere) {
+            return ((BoundingSphere) bound).getRadius();
+        }
+        if (bound instanceof BoundingBox) {
+            BoundingBox box = (BoundingBox) bound;
+            float x = box.getXExtent();
+            float y = box.getYExtent();
+            float z = box.getZExtent();
+            return (float) Math.sqrt(x * x + y * y + z * z);
+        }
+        return 0f;
+    }
+
+    /**
+     * Mesh and material pair, compared by identity like InstancedNode does
+     */
+    private static final class TileKey {
+        final Mesh mesh;
+        final Material material;
+
+        TileKey(Mesh mesh, Material material) {
+            this.mesh = mesh;
+            this.material = material;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof TileKey)) {
+                return false;
+            }
+            TileKey other = (TileKey) o;
+            return mesh == other.mesh && material == other.material;
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * System.identityHashCode(mesh) + System.identityHashCode(material);
+        }
+    }
+}
@@ -0,0 +1,361 @@
+package com.example.rendering;
+
+import java.nio.FloatBuffer;
+import java.nio.IntBuffer;
+import java.util.Arrays;
+import java.util.IdentityHashMap;
+import java.util.Map;
+import java.util.function.BiFunction;
+
+import com.jme3.app.Application;
+import com.jme3.app.SimpleApplication;
+import com.jme3.app.state.BaseAppState;
+import com.jme3.material.Material;
+import com.jme3.material.RenderState;
+import com.jme3.math.Vector3f;
+import com.jme3.renderer.Camera;
+import com.jme3.renderer.RenderManager;
+import com.jme3.renderer.queue.RenderQueue;
+import com.jme3.scene.Geometry;
+import com.jme3.scene.Mesh;
+import com.jme3.scene.Node;
+import com.jme3.scene.Spatial;
+import com.jme3.scene.VertexBuffer;
+import com.jme3.scene.instancing.InstancedGeometry;
+import com.jme3.util.BufferUtils;
+
+/**
+ * Draws distant objects as camera-facing quads textured from an
+ * ImpostorAtlas, all in one dynamic mesh and one draw call.
+ *
+ * Objects farther from the camera than the impostor distance have their
+ * real geometry hidden and get a quad instead, rebuilt on the CPU every
+ * frame from the geometry's world bound. They switch back once they come
+ * closer than the distance minus a hysteresis band, so objects on the edge
+ * do not flicker. Instanced geometries are hidden through the instance
+ * culling function; statically batched ones cannot be hidden and should not
+ * be added.
+ */
+public class ImpostorRenderer extends BaseAppState {
+
+    public static final float DEFAULT_DISTANCE = 200f;
+    public static final float DEFAULT_HYSTERESIS = 0.1f;
+
+    private static final float ALPHA_DISCARD_THRESHOLD = 0.5f;
+
+    private final ImpostorAtlas atlas;
+    private Camera camera;
+    private RenderManager renderManager;
+    private Node parent;
+    private float distance = DEFAULT_DISTANCE;
+    private float hysteresis = DEFAULT_HYSTERESIS;
+
+    // Tracked objects, swap-removed
+    private Geometry[] tracked = new Geometry[64];
+    private int[] trackedTiles = new int[64];
+    private boolean[] impostor = new boolean[64];
+    private int trackedCount;
+    private final Map<Geometry, Integer> trackedIndices = new IdentityHashMap<>();
+
+    // Quad mesh, grown on demand
+    private final Mesh quadMesh = new Mesh();
+    private final Geometry quadGeometry = new Geometry("Impostors", quadMesh);
+    private FloatBuffer positions;
+    private FloatBuffer texCoords;
+    private IntBuffer indices;
+    private int quadCapacity;
+    private int quadCount;
+
+    private BiFunction<Camera, Geometry, Boolean> previousCulling;
+
+    // Scratch vectors for the quad corners
+    private final Vector3f right = new Vector3f();
+    private final Vector3f up = new Vector3f();
+
+    public ImpostorRenderer() {
+        this(new ImpostorAtlas());
+    }
+
+    public ImpostorRenderer(ImpostorAtlas atlas) {
+        this.atlas = atlas;
+        growQuads(256);
+    }
+
+    @Override
+    protected void initialize(Application app) {
+        renderManager = app.getRenderManager();
+        if (camera == null) {
+            camera = app.getCamera();
+        }
+        if (parent == null && app instanceof SimpleApplication) {
+            parent = ((SimpleApplication) app).getRootNode();
+        }
+
+        Material material = new Material(app.getAssetManager(), "Common/MatDefs/Misc/Unshaded.j3md");
+        material.setTexture("ColorMap", atlas.getTexture());
+        material.setFloat("AlphaDiscardThreshold", ALPHA_DISCARD_THRESHOLD);
+        material.getAdditionalRenderState().setFaceCullMode(RenderState.FaceCullMode.Off);
+        quadGeometry.setMaterial(material);
+        quadGeometry.setShadowMode(RenderQueue.ShadowMode.Off);
+        quadGeometry.setCullHint(Spatial.CullHint.Always);
+        if (parent != null) {
+            parent.attachChild(quadGeometry);
+        }
+
+        // Instances are drawn from their InstancedGeometry, so hidden
+        // geometries have to be culled per instance
+        BiFunction<Camera, Geometry, Boolean> culling = InstancedGeometry.getInstanceCullingFunction();
+        previousCulling = culling;
+        InstancedGeometry.setInstanceCullingFunction((cam, geometry) ->
+                geometry.getLocalCullHint() == Spatial.CullHint.Always || culling.apply(cam, geometry));
+    }
+
+    @Override
+    protected void cleanup(Application app) {
+        if (previousCulling != null) {
+            InstancedGeometry.setInstanceCullingFunction(previousCulling);
+            previousCulling = null;
+        }
+        for (int i = 0; i < trackedCount; i++) {
+            showGeometry(i);
+        }
+        atlas.cleanup(renderManager);
+        quadGeometry.removeFromParent();
+    }
+
+    @Override
+    protected void onEnable() {
+        // Impostors are rebuilt on the next update
+    }
+
+    @Override
+    protected void onDisable() {
+        for (int i = 0; i < trackedCount; i++) {
+            showGeometry(i);
+        }
+        quadGeometry.setCullHint(Spatial.CullHint.Always);
+    }
+
+    @Override
+    public void update(float tpf) {
+        atlas.update(renderManager);
+        updateImpostors();
+    }
+
+    @Override
+    public void postRender() {
+        atlas.postRender();
+    }
+
+    /**
+     * Attach the impostor mesh somewhere other than the root node. Call
+     * before the state is attached.
+     */
+    public void setParent(Node parent) {
+        this.parent = parent;
+    }
+
+    /**
+     * Measure distances from another camera than the application's. Call
+     * before the state is attached.
+     */
+    public void setCamera(Camera camera) {
+        this.camera = camera;
+    }
+
+    /**
+     * Set the distance beyond which objects are drawn as impostors
+     */
+    public void setDistance(float distance) {
+        this.distance = distance;
+    }
+
+    public float getDistance() {
+        return distance;
+    }
+
+    /**
+     * Set how much closer than the distance, as a fraction of it, an
+     * impostor has to come before its real geometry returns
+     */
+    public void setHysteresis(float hysteresis) {
+        this.hysteresis = hysteresis;
+    }
+
+    /**
+     * Track a geometry for the impostor tier
+     * @return false if the atlas has no tile left for its mesh and material
+     */
+    public boolean add(Geometry geometry) {
+        if (trackedIndices.containsKey(geometry)) {
+            return true;
+        }
+        int tile = atlas.getTile(geometry.getMesh(), geometry.getMaterial());
+        if (tile < 0) {
+            return false;
+        }
+        if (trackedCount == tracked.length) {
+            int capacity = tracked.length * 2;
+            tracked = Arrays.copyOf(tracked, capacity);
+            trackedTiles = Arrays.copyOf(trackedTiles, capacity);
+            impostor = Arrays.copyOf(impostor, capacity);
+        }
+        tracked[trackedCount] = geometry;
+        trackedTiles[trackedCount] = tile;
+        impostor[trackedCount] = false;
+        trackedIndices.put(geometry, trackedCount);
+        trackedCount++;
+        return true;
+    }
+
+    /**
+     * Stop tracking a geometry and show it again if it was an impostor
+     */
+    public void remove(Geometry geometry) {
+        Integer index = trackedIndices.remove(geometry);
+        if (index == null) {
+            return;
+        }
+        int i = index;
+        showGeometry(i);
+
+        int last = --trackedCount;
+        if (i != last) {
+            tracked[i] = tracked[last];
+            trackedTiles[i] = trackedTiles[last];
+            impostor[i] = impostor[last];
+            trackedIndices.put(tracked[i], i);
+        }
+        tracked[last] = null;
+    }
+
+    /**
+     * Get the number of objects drawn as impostors in the last update
+     */
+    public int getImpostorCount() {
+        return quadCount;
+    }
+
+    public int getTrackedCount() {
+        return trackedCount;
+    }
+
+    public ImpostorAtlas getAtlas() {
+        return atlas;
+    }
+
+    /**
+     * Switch objects between tiers and rebuild the quads. Called from
+     * update().
+     */
+    public void updateImpostors() {
+        Vector3f eye = camera.getLocation();
+        float farSquared = distance * distance;
+        float near = distance * (1f - hysteresis);
+        float nearSquared = near * near;
+        camera.getLeft(right).negateLocal();
+        camera.getUp(up);
+
+        quadCount = 0;
+        positions.clear();
+        texCoords.clear();
+        for (int i = 0; i < trackedCount; i++) {
+            Geometry geometry = tracked[i];
+            if (geometry.getParent() == null) {
+                // Not in the scene (yet)
+                continue;
+            }
+            Vector3f center = geometry.getWorldBound().getCenter();
+            float distanceSquared = eye.distanceSquared(center);
+            boolean far = impostor[i] ? distanceSquared > nearSquared : distanceSquared > farSquared;
+            if (far != impostor[i]) {
+                impostor[i] = far;
+                geometry.setCullHint(far ? Spatial.CullHint.Always : Spatial.CullHint.Inherit);
+            }
+            if (far) {
+                float radius = ImpostorAtlas.getBoundRadius(geometry.getWorldBound()) / ImpostorAtlas.TILE_FILL;
+                writeQuad(center, radius, trackedTiles[i]);
+            }
+        }
+
+        if (quadCount == 0) {
+            quadGeometry.setCullHint(Spatial.CullHint.Always);
+            return;
+        }
+        positions.flip();
+        texCoords.flip();
+        indices.clear().limit(quadCount * 6);
+        quadMesh.getBuffer(VertexBuffer.Type.Position).updateData(positions);
+        quadMesh.getBuffer(VertexBuffer.Type.TexCoord).updateData(texCoords);
+        quadMesh.getBuffer(VertexBuffer.Type.Index).updateData(indices);
+        quadMesh.updateCounts();
+        quadMesh.updateBound();
+        quadGeometry.updateModelBound();
+        quadGeometry.setCullHint(Spatial.CullHint.Inherit);
+    }
+
+    private void showGeometry(int index) {
+        if (impostor[index]) {
+            impostor[index] = false;
+            tracked[index].setCullHint(Spatial.CullHint.Inherit);
+        }
+    }
+
+    private void writeQuad(Vector3f center, float radius, int tile) {
+        if (quadCount == quadCapacity) {
+            growQuads(quadCapacity * 2);
+        }
+        float rx = right.x * radius;
+        float ry = right.y * radius;
+        float rz = right.z * radius;
+        float ux = up.x * radius;
+        float uy = up.y * radius;
+        float uz = up.z * radius;
+
+        // Bottom left, bottom right, top right, top left
+        positions.put(center.x - rx - ux).put(center.y - ry - uy).put(center.z - rz - uz);
+        positions.put(center.x + rx - ux).put(center.y + ry - uy).put(center.z + rz - uz);
+        positions.put(center.x + rx + ux).put(center.y + ry + uy).put(center.z + rz + uz);
+        positions.put(center.x - rx + ux).put(center.y - ry + uy).put(center.z - rz + uz);
+
+        float span = atlas.getTileSpan();
+        float u0 = atlas.getTileColumn(tile) * span;
+        float v0 = atlas.getTileRow(tile) * span;
+        float u1 = u0 + span;
+        float v1 = v0 + span;
+        texCoords.put(u0).put(v0);
+        texCoords.put(u1).put(v0);
+        texCoords.put(u1).put(v1);
+        texCoords.put(u0).put(v1);
+
+        quadCount++;
+    }
+
+    private void growQuads(int capacity) {
+        FloatBuffer newPositions = BufferUtils.createFloatBuffer(capacity * 4 * 3);
+        FloatBuffer newTexCoords = BufferUtils.createFloatBuffer(capacity * 4 * 2);
+        if (positions != null) {
+            positions.flip();
+            texCoords.flip();
+            newPositions.put(positions);
+            newTexCoords.put(texCoords);
+        }
+        positions = newPositions;
+        texCoords = newTexCoords;
+
+        // Two triangles per quad, the same for every frame. Int indices, so a
+        // crowd past 16k quads still fits in one mesh.
+        indices = BufferUtils.createIntBuffer(capacity * 6);
+        for (int quad = 0; quad < capacity; quad++) {
+            int base = quad * 4;
+            indices.put(base).put(base + 1).put(base + 2);
+            indices.put(base).put(base + 2).put(base + 3);
+        }
+        indices.flip();
+
+        quadMesh.setBuffer(VertexBuffer.Type.Position, 3, positions);
+        quadMesh.setBuffer(VertexBuffer.Type.TexCoord, 2, texCoords);
+        quadMesh.setBuffer(VertexBuffer.Type.Index, 3, indices);
+        quadCapacity = capacity;
+    }
+}
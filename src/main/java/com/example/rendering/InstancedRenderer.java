@@ -0,0 +1,162 @@
+package com.example.rendering;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import com.jme3.app.Application;
+import com.jme3.app.state.BaseAppState;
+import com.jme3.material.MatParam;
+import com.jme3.material.Material;
+import com.jme3.scene.Geometry;
+import com.jme3.scene.Node;
+import com.jme3.scene.Spatial;
+import com.jme3.scene.instancing.InstancedGeometry;
+import com.jme3.scene.instancing.InstancedNode;
+
+/**
+ * Draws geometries that share a mesh and material as one hardware instanced
+ * draw call, built on jME's InstancedNode.
+ *
+ * Geometries keep their controls, so a RigidBodyControl still moves its
+ * geometry. InstancedGeometry rewrites every visible instance's world matrix
+ * into the instance buffer each frame, moved or not, so sleeping bodies
+ * still cost that copy and upload; they only skip the scene graph transform
+ * update (see SleepAwareRigidBodyControl). Materials
+ * must have UseInstancing set, e.g. from MaterialCache with instanced true,
+ * and meshes must be the same instance, e.g. from MeshCache.
+ *
+ * Added geometries are attached in the next update, before the scene is
+ * updated, so a geometry is never drawn without its instance data.
+ */
+public class InstancedRenderer extends BaseAppState {
+
+    private final InstancedNode instancedNode;
+    private final List<Geometry> pending = new ArrayList<>();
+    private Node parent;
+    private int instanceCount;
+
+    public InstancedRenderer() {
+        this("Instanced Node");
+    }
+
+    public InstancedRenderer(String name) {
+        this.instancedNode = new InstancedNode(name);
+    }
+
+    @Override
+    protected void initialize(Application app) {
+        if (parent == null && app instanceof com.jme3.app.SimpleApplication) {
+            parent = ((com.jme3.app.SimpleApplication) app).getRootNode();
+        }
+        if (parent != null) {
+            parent.attachChild(instancedNode);
+        }
+    }
+
+    @Override
+    protected void cleanup(Application app) {
+        pending.clear();
+        instancedNode.removeFromParent();
+    }
+
+    @Override
+    public void update(float tpf) {
+        flush();
+    }
+
+    @Override
+    protected void onEnable() {
+        instancedNode.setCullHint(Spatial.CullHint.Inherit);
+    }
+
+    @Override
+    protected void onDisable() {
+        instancedNode.setCullHint(Spatial.CullHint.Always);
+    }
+
+    /**
+     * Attach the instanced node somewhere other than the root node. Call
+     * before the state is attached.
+     */
+    public void setParent(Node parent) {
+        this.parent = parent;
+    }
+
+    /**
+     * Add a geometry to be drawn instanced
+     * @throws IllegalArgumentException If its material does not use instancing
+     */
+    public void add(Geometry geometry) {
+        if (!supportsInstancing(geometry.getMaterial())) {
+            throw new IllegalArgumentException("Material of " + geometry.getName() + " does not have UseInstancing set");
+        }
+        pending.add(geometry);
+    }
+
+    /**
+     * Remove a geometry added with add()
+     */
+    public void remove(Geometry geometry) {
+        if (pending.remove(geometry)) {
+            return;
+        }
+        if (geometry.getParent() == instancedNode) {
+            instancedNode.detachChild(geometry);
+            instanceCount--;
+        }
+    }
+
+    /**
+     * Attach pending geometries and group them into instanced draws. Called
+     * from update(); call it directly when the state is not attached.
+     */
+    public void flush() {
+        if (pending.isEmpty()) {
+            return;
+        }
+        for (int i = 0, count = pending.size(); i < count; i++) {
+            instancedNode.attachChild(pending.get(i));
+        }
+        instanceCount += pending.size();
+        pending.clear();
+        instancedNode.instance();
+    }
+
+    /**
+     * Check if a material can be used for instanced geometries
+     */
+    public static boolean supportsInstancing(Material material) {
+        if (material == null) {
+            return false;
+        }
+        MatParam param = material.getParam("UseInstancing");
+        return param != null && Boolean.TRUE.equals(param.getValue());
+    }
+
+    /**
+     * Get the node holding the instanced geometries
+     */
+    public InstancedNode getNode() {
+        return instancedNode;
+    }
+
+    /**
+     * Get the number of geometries drawn through this renderer
+     */
+    public int getInstanceCount() {
+        return instanceCount;
+    }
+
+    /**
+     * Get the number of instanced draws, one per mesh and material pair
+     */
+    public int getDrawCount() {
+        int draws = 0;
+        for (Spatial child : instancedNode.getChildren()) {
+            if (child instanceof InstancedGeometry && !((InstancedGeometry) child).isEmpty()) {
+                draws++;
+            }
+        }
+        return draws;
+    }
+}
@@ -0,0 +1,190 @@
+package com.example.rendering;
+
+import java.util.Arrays;
+
+import com.jme3.asset.AssetManager;
+import com.jme3.material.Material;
+import com.jme3.math.ColorRGBA;
+
+/**
+ * Shared materials keyed by material type and parameters, so identical
+ * objects reuse one material and its shader parameters.
+ *
+ * Cached materials are shared between geometries and must not be modified;
+ * clone one for a per-object tweak. Release a material when the geometry
+ * using it is removed. Instanced materials (UseInstancing set) are cached
+ * separately, for use with InstancedRenderer.
+ */
+public class MaterialCache {
+
+    public enum MaterialKind {
+        UNSHADED,
+        WIREFRAME,
+        PBR,
+        PRESET
+    }
+
+    private final AssetManager assetManager;
+    private final AdvancedMaterialFactory presets;
+    private final ResourceCache<MaterialKey, Material> cache;
+
+    public MaterialCache(AssetManager assetManager) {
+        this.assetManager = assetManager;
+        this.presets = new AdvancedMaterialFactory(assetManager);
+        this.cache = new ResourceCache<>(this::createMaterial);
+    }
+
+    /**
+     * Get a shared unshaded material
+     */
+    public Material acquireUnshaded(ColorRGBA color) {
+        return acquireUnshaded(color, false);
+    }
+
+    /**
+     * Get a shared unshaded material, with or without instancing
+     */
+    public Material acquireUnshaded(ColorRGBA color, boolean instanced) {
+        return cache.acquire(new MaterialKey(MaterialKind.UNSHADED, 0, instanced, color));
+    }
+
+    /**
+     * Get a shared unshaded wireframe material
+     */
+    public Material acquireWireframe(ColorRGBA color) {
+        return cache.acquire(new MaterialKey(MaterialKind.WIREFRAME, 0, false, color));
+    }
+
+    /**
+     * Get a shared PBR material
+     */
+    public Material acquirePbr(ColorRGBA baseColor, float metallic, float roughness) {
+        return acquirePbr(baseColor, metallic, roughness, false);
+    }
+
+    /**
+     * Get a shared PBR material, with or without instancing
+     */
+    public Material acquirePbr(ColorRGBA baseColor, float metallic, float roughness, boolean instanced) {
+        return cache.acquire(new MaterialKey(MaterialKind.PBR, 0, instanced, baseColor, metallic, roughness));
+    }
+
+    /**
+     * Get a shared AdvancedMaterialFactory preset
+     */
+    public Material acquirePreset(AdvancedMaterialFactory.MaterialType type, ColorRGBA tint) {
+        return acquirePreset(type, tint, false);
+    }
+
+    /**
+     * Get a shared AdvancedMaterialFactory preset, with or without instancing
+     */
+    public Material acquirePreset(AdvancedMaterialFactory.MaterialType type, ColorRGBA tint, boolean instanced) {
+        return cache.acquire(new MaterialKey(MaterialKind.PRESET, type.ordinal(), instanced, tint));
+    }
+
+    /**
+     * Give back a material taken from this cache
+     * @return false if the material is not from this cache
+     */
+    public boolean release(Material material) {
+        return cache.release(material);
+    }
+
+    /**
+     * Check if a material is shared through this cache
+     */
+    public boolean contains(Material material) {
+        return cache.contains(material);
+    }
+
+    /**
+     * Get the underlying cache, for eviction settings and statistics
+     */
+    public ResourceCache<MaterialKey, Material> getCache() {
+        return cache;
+    }
+
+    private Material createMaterial(MaterialKey key) {
+        Material mat = buildMaterial(key);
+        if (key.instanced) {
+            mat.setBoolean("UseInstancing", true);
+        }
+        return mat;
+    }
+
+    private Material buildMaterial(MaterialKey key) {
+        float[] p = key.params;
+        ColorRGBA color = new ColorRGBA(p[0], p[1], p[2], p[3]);
+        Material mat;
+        switch (key.kind) {
+            case UNSHADED:
+                mat = new Material(assetManager, "Common/MatDefs/Misc/Unshaded.j3md");
+                mat.setColor("Color", color);
+                return mat;
+            case WIREFRAME:
+                mat = new Material(assetManager, "Common/MatDefs/Misc/Unshaded.j3md");
+                mat.setColor("Color", color);
+                mat.getAdditionalRenderState().setWireframe(true);
+                return mat;
+            case PBR:
+                mat = new Material(assetManager, "Common/MatDefs/Light/PBRLighting.j3md");
+                mat.setColor("BaseColor", color);
+                mat.setFloat("Metallic", p[4]);
+                mat.setFloat("Roughness", p[5]);
+                return mat;
+            case PRESET:
+                return presets.createPBRMaterial(AdvancedMaterialFactory.MaterialType.values()[key.variant], color);
+            default:
+                throw new IllegalArgumentException("Unknown material kind: " + key.kind);
+        }
+    }
+
+    /**
+     * Cache key: material kind, a variant (the preset type), instancing and
+     * the color followed by any float parameters
+     */
+    public static final class MaterialKey {
+        final MaterialKind kind;
+        final int variant;
+        final boolean instanced;
+        final float[] params;
+        private final int hash;
+
+        MaterialKey(MaterialKind kind, int variant, boolean instanced, ColorRGBA color, float... extra) {
+            this.kind = kind;
+            this.variant = variant;
+            this.instanced = instanced;
+            this.params = new float[4 + extra.length];
+            params[0] = color.r;
+            params[1] = color.g;
+            params[2] = color.b;
+            params[3] = color.a;
+            System.arraycopy(extra, 0, params, 4, extra.length);
+            this.hash = 31 * (31 * (31 * kind.hashCode() + variant) + (instanced ? 1 : 0)) + Arrays.hashCode(params);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof MaterialKey)) {
+                return false;
+            }
+            MaterialKey other = (MaterialKey) o;
+            return kind == other.kind && variant == other.variant && instanced == other.instanced
+                    && Arrays.equals(params, other.params);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+
+        @Override
+        public String toString() {
+            return kind + "[" + variant + (instanced ? ", instanced, " : ", ") + Arrays.toString(params) + "]";
+        }
+    }
+}
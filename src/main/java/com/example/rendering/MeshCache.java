@@ -0,0 +1,186 @@
+package com.example.rendering;
+
+import com.jme3.scene.Mesh;
+import com.jme3.scene.shape.Box;
+import com.jme3.scene.shape.Cylinder;
+import com.jme3.scene.shape.Quad;
+import com.jme3.scene.shape.Sphere;
+
+import jme3tools.optimize.LodGenerator;
+
+/**
+ * Shared meshes keyed by shape type, dimensions and tessellation, so identical
+ * objects reuse one mesh and one set of vertex buffers.
+ *
+ * Cached meshes are shared between geometries and must not be modified.
+ * Release a mesh when the geometry using it is removed.
+ *
+ * With LOD reductions set, curved meshes created afterwards get baked LOD
+ * levels: extra index buffers over the same vertices, built once per mesh by
+ * jME's LodGenerator, for ScreenSpaceLodControl to switch between.
+ */
+public class MeshCache {
+
+    public enum ShapeType {
+        SPHERE,
+        BOX,
+        CYLINDER,
+        CONE,
+        QUAD
+    }
+
+    public static final float[] DEFAULT_LOD_REDUCTIONS = {0.5f, 0.75f, 0.9f};
+
+    // Cylinder needs a positive radius at both ends
+    private static final float CONE_TIP_SCALE = 0.001f;
+
+    private final ResourceCache<MeshKey, Mesh> cache = new ResourceCache<>(this::createMesh);
+    private float[] lodReductions;
+
+    /**
+     * Get a shared sphere mesh
+     */
+    public Mesh acquireSphere(int zSamples, int radialSamples, float radius) {
+        return cache.acquire(new MeshKey(ShapeType.SPHERE, zSamples, radialSamples, radius, 0f, 0f));
+    }
+
+    /**
+     * Get a shared box mesh
+     */
+    public Mesh acquireBox(float halfX, float halfY, float halfZ) {
+        return cache.acquire(new MeshKey(ShapeType.BOX, 0, 0, halfX, halfY, halfZ));
+    }
+
+    /**
+     * Get a shared closed cylinder mesh
+     */
+    public Mesh acquireCylinder(int axisSamples, int radialSamples, float radius, float height) {
+        return cache.acquire(new MeshKey(ShapeType.CYLINDER, axisSamples, radialSamples, radius, height, 0f));
+    }
+
+    /**
+     * Get a shared closed cone mesh, pointing along +Z like Cylinder
+     */
+    public Mesh acquireCone(int axisSamples, int radialSamples, float radius, float height) {
+        return cache.acquire(new MeshKey(ShapeType.CONE, axisSamples, radialSamples, radius, height, 0f));
+    }
+
+    /**
+     * Get a shared quad mesh
+     */
+    public Mesh acquireQuad(float width, float height) {
+        return cache.acquire(new MeshKey(ShapeType.QUAD, 0, 0, width, height, 0f));
+    }
+
+    /**
+     * Bake LOD levels into meshes created from now on
+     * @param reductions Fraction of triangles removed per level, e.g.
+     *        DEFAULT_LOD_REDUCTIONS; none to turn LOD baking off
+     */
+    public void setLodReductions(float... reductions) {
+        this.lodReductions = reductions.length > 0 ? reductions.clone() : null;
+    }
+
+    public boolean isLodEnabled() {
+        return lodReductions != null;
+    }
+
+    /**
+     * Give back a mesh taken from this cache
+     * @return false if the mesh is not from this cache
+     */
+    public boolean release(Mesh mesh) {
+        return cache.release(mesh);
+    }
+
+    /**
+     * Check if a mesh is shared through this cache
+     */
+    public boolean contains(Mesh mesh) {
+        return cache.contains(mesh);
+    }
+
+    /**
+     * Get the underlying cache, for eviction settings and statistics
+     */
+    public ResourceCache<MeshKey, Mesh> getCache() {
+        return cache;
+    }
+
+    private Mesh createMesh(MeshKey key) {
+        Mesh mesh;
+        switch (key.type) {
+            case SPHERE:
+                mesh = new Sphere(key.samplesA, key.samplesB, key.a);
+                break;
+            case CYLINDER:
+                mesh = new Cylinder(key.samplesA, key.samplesB, key.a, key.b, true);
+                break;
+            case CONE:
+                mesh = new Cylinder(key.samplesA, key.samplesB, key.a * CONE_TIP_SCALE, key.a, key.b, true, false);
+                break;
+            case BOX:
+                // Too few triangles to reduce
+                return new Box(key.a, key.b, key.c);
+            case QUAD:
+                return new Quad(key.a, key.b);
+            default:
+                throw new IllegalArgumentException("Unknown shape type: " + key.type);
+        }
+        if (lodReductions != null) {
+            new LodGenerator(mesh).bakeLods(LodGenerator.TriangleReductionMethod.PROPORTIONAL, lodReductions);
+        }
+        return mesh;
+    }
+
+    /**
+     * Cache key: shape type, tessellation and up to three dimensions
+     */
+    public static final class MeshKey {
+        final ShapeType type;
+        final int samplesA;
+        final int samplesB;
+        final float a;
+        final float b;
+        final float c;
+
+        MeshKey(ShapeType type, int samplesA, int samplesB, float a, float b, float c) {
+            this.type = type;
+            this.samplesA = samplesA;
+            this.samplesB = samplesB;
+            this.a = a;
+            this.b = b;
+            this.c = c;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof MeshKey)) {
+                return false;
+            }
+            MeshKey other = (MeshKey) o;
+            return type == other.type && samplesA == other.samplesA && samplesB == other.samplesB
+                    && Float.compare(a, other.a) == 0 && Float.compare(b, other.b) == 0
+                    && Float.compare(c, other.c) == 0;
+        }
+
+        @Override
+        public int hashCode() {
+            int hash = type.hashCode();
+            hash = 31 * hash + samplesA;
+            hash = 31 * hash + samplesB;
+            hash = 31 * hash + Float.floatToIntBits(a);
+            hash = 31 * hash + Float.floatToIntBits(b);
+            hash = 31 * hash + Float.floatToIntBits(c);
+            return hash;
+        }
+
+        @Override
+        public String toString() {
+            return type + "[" + samplesA + "x" + samplesB + ", " + a + ", " + b + ", " + c + "]";
+        }
+    }
+}
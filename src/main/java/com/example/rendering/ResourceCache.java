@@ -0,0 +1,173 @@
+package com.example.rendering;
+
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * Reference counted cache of shared render resources such as meshes and
+ * materials.
+ *
+ * Every acquire() of a key returns the same instance and counts a reference;
+ * release() gives one back. Resources that are no longer referenced stay
+ * cached, so despawning and respawning an object does not rebuild them,
+ * until more than maxUnused of them pile up and the least recently released
+ * are evicted. Evicted resources are only dropped; jME frees their GPU
+ * objects once they are garbage collected. Not thread safe: use it from the
+ * render thread.
+ */
+public class ResourceCache<K, V> {
+
+    public static final int DEFAULT_MAX_UNUSED = 64;
+
+    private final Function<K, V> factory;
+    private final Map<K, Entry<K, V>> entries = new HashMap<>();
+    private final Map<V, Entry<K, V>> byValue = new IdentityHashMap<>();
+    // Unreferenced entries, least recently released first
+    private final LinkedHashMap<K, Entry<K, V>> unused = new LinkedHashMap<>();
+    private int maxUnused = DEFAULT_MAX_UNUSED;
+
+    private long hits;
+    private long misses;
+    private long evictions;
+
+    private static final class Entry<K, V> {
+        final K key;
+        final V value;
+        int references;
+
+        Entry(K key, V value) {
+            this.key = key;
+            this.value = value;
+        }
+    }
+
+    /**
+     * Create a cache
+     * @param factory Creates the resource for a key on a miss
+     */
+    public ResourceCache(Function<K, V> factory) {
+        this.factory = factory;
+    }
+
+    /**
+     * Get the resource for a key, creating it on first use, and count a
+     * reference to it
+     */
+    public V acquire(K key) {
+        Entry<K, V> entry = entries.get(key);
+        if (entry == null) {
+            misses++;
+            entry = new Entry<>(key, factory.apply(key));
+            entries.put(key, entry);
+            byValue.put(entry.value, entry);
+        } else {
+            hits++;
+            if (entry.references == 0) {
+                unused.remove(key);
+            }
+        }
+        entry.references++;
+        return entry.value;
+    }
+
+    /**
+     * Give back a reference taken with acquire()
+     * @return false if the resource is not from this cache or has no
+     *         references left
+     */
+    public boolean release(V value) {
+        Entry<K, V> entry = byValue.get(value);
+        if (entry == null || entry.references == 0) {
+            return false;
+        }
+        if (--entry.references == 0) {
+            unused.put(entry.key, entry);
+            trimUnused();
+        }
+        return true;
+    }
+
+    /**
+     * Check if a resource is owned by this cache
+     */
+    public boolean contains(V value) {
+        return byValue.containsKey(value);
+    }
+
+    /**
+     * Get the number of references to a resource, 0 if it is not cached
+     */
+    public int getReferenceCount(V value) {
+        Entry<K, V> entry = byValue.get(value);
+        return entry != null ? entry.references : 0;
+    }
+
+    /**
+     * Set how many unreferenced resources are kept for reuse
+     */
+    public void setMaxUnused(int maxUnused) {
+        this.maxUnused = Math.max(0, maxUnused);
+        trimUnused();
+    }
+
+    public int getMaxUnused() {
+        return maxUnused;
+    }
+
+    /**
+     * Evict every unreferenced resource
+     */
+    public void evictUnused() {
+        int keep = maxUnused;
+        maxUnused = 0;
+        trimUnused();
+        maxUnused = keep;
+    }
+
+    /**
+     * Drop all resources, referenced or not
+     */
+    public void clear() {
+        entries.clear();
+        byValue.clear();
+        unused.clear();
+    }
+
+    private void trimUnused() {
+        Iterator<Entry<K, V>> it = unused.values().iterator();
+        while (unused.size() > maxUnused && it.hasNext()) {
+            Entry<K, V> entry = it.next();
+            it.remove();
+            entries.remove(entry.key);
+            byValue.remove(entry.value);
+            evictions++;
+        }
+    }
+
+    /**
+     * Get the number of cached resources, referenced or not
+     */
+    public int size() {
+        return entries.size();
+    }
+
+    public int getUnusedCount() {
+        return unused.size();
+    }
+
+    public long getHits() {
+        return hits;
+    }
+
+    public long getMisses() {
+        return misses;
+    }
+
+    public long getEvictions() {
+        return evictions;
+    }
+}
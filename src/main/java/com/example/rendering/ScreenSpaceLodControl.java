@@ -0,0 +1,119 @@
+package com.example.rendering;
+
+import com.jme3.bounding.BoundingBox;
+import com.jme3.bounding.BoundingSphere;
+import com.jme3.bounding.BoundingVolume;
+import com.jme3.renderer.Camera;
+import com.jme3.renderer.RenderManager;
+import com.jme3.renderer.ViewPort;
+import com.jme3.scene.Geometry;
+import com.jme3.scene.control.AbstractControl;
+
+/**
+ * Picks a geometry's mesh LOD level from its size on screen.
+ *
+ * The screen size is the projected radius of the world bound as a fraction
+ * of half the screen height, so 1 fills the screen. Level i + 1 is used
+ * below thresholds[i]. A hysteresis band around each threshold keeps an
+ * object at the edge from flickering between levels. The mesh needs baked
+ * LOD levels, e.g. from MeshCache with LOD reductions set.
+ *
+ * The level is chosen in the logical update, so instanced geometries can
+ * move to the instanced draw of their new level before rendering. Do not
+ * use it on statically batched geometries; BatchNode ignores LOD levels.
+ */
+public class ScreenSpaceLodControl extends AbstractControl {
+
+    public static final float[] DEFAULT_THRESHOLDS = {0.25f, 0.1f, 0.04f};
+    public static final float DEFAULT_HYSTERESIS = 0.15f;
+
+    private final Camera camera;
+    private float[] thresholds = DEFAULT_THRESHOLDS;
+    private float hysteresis = DEFAULT_HYSTERESIS;
+    private float screenSize;
+
+    public ScreenSpaceLodControl(Camera camera) {
+        this.camera = camera;
+    }
+
+    @Override
+    protected void controlUpdate(float tpf) {
+        if (!(spatial instanceof Geometry)) {
+            return;
+        }
+        Geometry geometry = (Geometry) spatial;
+        int levels = geometry.getMesh().getNumLodLevels();
+        if (levels <= 1) {
+            return;
+        }
+
+        screenSize = computeScreenSize(geometry.getWorldBound());
+        int maxLevel = Math.min(levels - 1, thresholds.length);
+        int current = Math.min(geometry.getLodLevel(), maxLevel);
+        int level = current;
+
+        // Cross one threshold at a time, each only past its hysteresis band
+        while (level < maxLevel && screenSize < thresholds[level] * (1f - hysteresis)) {
+            level++;
+        }
+        while (level > 0 && screenSize > thresholds[level - 1] * (1f + hysteresis)) {
+            level--;
+        }
+
+        if (level != geometry.getLodLevel()) {
+            geometry.setLodLevel(level);
+        }
+    }
+
+    private float computeScreenSize(BoundingVolume bound) {
+        float radius;
+        if (bound instanceof BoundingSphere) {
+            radius = ((BoundingSphere) bound).getRadius();
+        } else if (bound instanceof BoundingBox) {
+            BoundingBox box = (BoundingBox) bound;
+            float x = box.getXExtent();
+            float y = box.getYExtent();
+            float z = box.getZExtent();
+            radius = (float) Math.sqrt(x * x + y * y + z * z);
+        } else {
+            return 1f;
+        }
+
+        if (camera.isParallelProjection()) {
+            return radius / camera.getFrustumTop();
+        }
+        float distance = camera.getLocation().distance(bound.getCenter());
+        if (distance <= radius) {
+            return 1f;
+        }
+        // frustumTop / frustumNear is tan(fovY / 2)
+        return radius * camera.getFrustumNear() / (distance * camera.getFrustumTop());
+    }
+
+    @Override
+    protected void controlRender(RenderManager rm, ViewPort vp) {
+        // Level is chosen in controlUpdate
+    }
+
+    /**
+     * Set the screen sizes below which each coarser level is used, largest
+     * first
+     */
+    public void setThresholds(float... thresholds) {
+        this.thresholds = thresholds.clone();
+    }
+
+    /**
+     * Set the hysteresis band as a fraction of each threshold
+     */
+    public void setHysteresis(float hysteresis) {
+        this.hysteresis = hysteresis;
+    }
+
+    /**
+     * Get the screen size measured in the last update
+     */
+    public float getScreenSize() {
+        return screenSize;
+    }
+}
@@ -0,0 +1,151 @@
+package com.example.rendering;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import com.example.util.LongIntMap;
+import com.jme3.math.Vector3f;
+import com.jme3.scene.BatchNode;
+import com.jme3.scene.Node;
+import com.jme3.scene.Spatial;
+
+/**
+ * Merges static visuals into batched meshes, one draw call per material and
+ * cell, while the original spatials (and their physics controls) stay in the
+ * scene graph.
+ *
+ * Visuals are grouped into BatchNodes by an XZ grid, so a batch can still be
+ * frustum culled and a change only rebuilds the cell it happens in. Added
+ * visuals are merged into the existing batches of their cell; a removal
+ * rebuilds that cell. Both happen in flush(), once per frame. Visuals only
+ * batch together when they share the same Material instance, e.g. from
+ * MaterialCache.
+ */
+public class StaticBatcher {
+
+    public static final float DEFAULT_CELL_SIZE = 64f;
+
+    private static final int NONE = -1;
+
+    private final Node node;
+    private final float inverseCellSize;
+
+    // Cell key -> index into cells
+    private final LongIntMap cellIndices = new LongIntMap(64);
+    private final List<BatchNode> cells = new ArrayList<>();
+    private final List<BatchNode> dirtyCells = new ArrayList<>();
+    private int staticCount;
+
+    public StaticBatcher(String name) {
+        this(name, DEFAULT_CELL_SIZE);
+    }
+
+    public StaticBatcher(String name, float cellSize) {
+        if (cellSize <= 0f) {
+            throw new IllegalArgumentException("Cell size must be positive: " + cellSize);
+        }
+        this.node = new Node(name);
+        this.inverseCellSize = 1f / cellSize;
+    }
+
+    /**
+     * Add a static visual, placed in the cell of its local translation. The
+     * visual must not move afterwards; every move rewrites its batch data.
+     */
+    public void add(Spatial visual) {
+        BatchNode cell = getCell(visual.getLocalTranslation());
+        cell.attachChild(visual);
+        markDirty(cell);
+        staticCount++;
+    }
+
+    /**
+     * Remove a visual added with add()
+     * @return false if the visual is not batched here
+     */
+    public boolean remove(Spatial visual) {
+        Node parent = visual.getParent();
+        if (!(parent instanceof BatchNode) || parent.getParent() != node) {
+            return false;
+        }
+        parent.detachChild(visual);
+        markDirty((BatchNode) parent);
+        staticCount--;
+        return true;
+    }
+
+    /**
+     * Check if a visual is batched here
+     */
+    public boolean contains(Spatial visual) {
+        Node parent = visual.getParent();
+        return parent instanceof BatchNode && parent.getParent() == node;
+    }
+
+    /**
+     * Rebuild the batches of cells that changed since the last flush. Call
+     * before the scene graph is updated for rendering.
+     */
+    public void flush() {
+        for (int i = 0, count = dirtyCells.size(); i < count; i++) {
+            dirtyCells.get(i).batch();
+        }
+        dirtyCells.clear();
+    }
+
+    /**
+     * Get the node holding all cells
+     */
+    public Node getNode() {
+        return node;
+    }
+
+    /**
+     * Get the number of batched visuals
+     */
+    public int getStaticCount() {
+        return staticCount;
+    }
+
+    public int getCellCount() {
+        return cells.size();
+    }
+
+    /**
+     * Get the number of batched meshes, one draw call each
+     */
+    public int getBatchCount() {
+        int batches = 0;
+        for (int i = 0, count = cells.size(); i < count; i++) {
+            BatchNode cell = cells.get(i);
+            for (Spatial child : cell.getChildren()) {
+                if (cell.isBatch(child)) {
+                    batches++;
+                }
+            }
+        }
+        return batches;
+    }
+
+    private void markDirty(BatchNode cell) {
+        if (!dirtyCells.contains(cell)) {
+            dirtyCells.add(cell);
+        }
+    }
+
+    private BatchNode getCell(Vector3f position) {
+        int cellX = (int) Math.floor(position.x * inverseCellSize);
+        int cellZ = (int) Math.floor(position.z * inverseCellSize);
+        long key = ((long) cellX << 32) | (cellZ & 0xFFFFFFFFL);
+
+        int index = cellIndices.get(key, NONE);
+        if (index != NONE) {
+            return cells.get(index);
+        }
+        BatchNode cell = new BatchNode(node.getName() + " (" + cellX + ", " + cellZ + ")");
+        node.attachChild(cell);
+        cellIndices.put(key, cells.size());
+        cells.add(cell);
+        return cell;
+    }
+}
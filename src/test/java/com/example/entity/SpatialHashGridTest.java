@@ -0,0 +1,188 @@
+package com.example.entity;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+import com.jme3.math.Vector3f;
+
+/**
+ * Checks every SpatialHashGrid query against a brute-force scan over all
+ * entities, on random positions around the origin so cells with negative
+ * coordinates are covered, and again after entities move between cells or
+ * leave the manager.
+ */
+public class SpatialHashGridTest {
+
+    private static final int ENTITIES = 600;
+    private static final int QUERIES = 200;
+    private static final float EXTENT = 60f;
+
+    /**
+     * Stays wherever it is put
+     */
+    private static final class StillEntity extends Entity {
+
+        StillEntity(String id, float x, float y, float z) {
+            super(id);
+            setPosition(x, y, z);
+        }
+
+        @Override
+        public void initialize() {
+        }
+
+        @Override
+        public void update(float tpf) {
+        }
+
+        @Override
+        public void cleanup() {
+        }
+    }
+
+    private final Random random = new Random(7);
+    private final Vector3f position = new Vector3f();
+
+    @Test
+    public void queriesMatchBruteForce() {
+        EntityManager manager = new EntityManager();
+        List<Entity> entities = new ArrayList<>();
+        for (int i = 0; i < ENTITIES; i++) {
+            Entity entity = new StillEntity("entity_" + i, coordinate(), coordinate() * 0.1f, coordinate());
+            entities.add(entity);
+            manager.addEntity(entity);
+        }
+        manager.update(0f);
+        assertEquals(ENTITIES, manager.getSpatialIndex().size(), "Indexed entities");
+        checkQueries(manager.getSpatialIndex(), entities);
+
+        // Move a third of them, most into another cell
+        for (int round = 0; round < 3; round++) {
+            for (int i = round; i < entities.size(); i += 3) {
+                entities.get(i).setPosition(coordinate(), coordinate() * 0.1f, coordinate());
+            }
+            manager.update(0f);
+            checkQueries(manager.getSpatialIndex(), entities);
+        }
+
+        // Small steps across cell borders, including across zero
+        float cellSize = manager.getSpatialIndex().getCellSize();
+        for (int i = 0; i < entities.size(); i += 2) {
+            entities.get(i).setPosition(cellSize * (random.nextInt(5) - 2) - 0.01f, 0f, -0.01f);
+        }
+        manager.update(0f);
+        checkQueries(manager.getSpatialIndex(), entities);
+
+        // Removed entities must leave their cells
+        for (int i = entities.size() - 1; i >= 0; i -= 4) {
+            manager.removeEntity(entities.remove(i).getId());
+        }
+        manager.update(0f);
+        assertEquals(entities.size(), manager.getSpatialIndex().size(), "Indexed entities after removal");
+        checkQueries(manager.getSpatialIndex(), entities);
+    }
+
+    private void checkQueries(SpatialHashGrid grid, List<Entity> entities) {
+        Entity[] out = new Entity[ENTITIES];
+        for (int q = 0; q < QUERIES; q++) {
+            float x = coordinate();
+            float y = coordinate() * 0.1f;
+            float z = coordinate();
+
+            float radius = random.nextFloat() * 30f;
+            int found = grid.queryRadius(x, y, z, radius, out);
+            List<Entity> expected = new ArrayList<>();
+            for (Entity entity : entities) {
+                if (distanceSquared(entity, x, y, z) <= radius * radius) {
+                    expected.add(entity);
+                }
+            }
+            assertSameEntities(expected, out, found, "queryRadius");
+
+            float halfX = random.nextFloat() * 25f;
+            float halfY = random.nextFloat() * 6f;
+            float halfZ = random.nextFloat() * 25f;
+            float minX = x - halfX;
+            float minY = y - halfY;
+            float minZ = z - halfZ;
+            float maxX = x + halfX;
+            float maxY = y + halfY;
+            float maxZ = z + halfZ;
+            found = grid.queryAabb(minX, minY, minZ, maxX, maxY, maxZ, out);
+            expected.clear();
+            for (Entity entity : entities) {
+                entity.getPosition(position);
+                if (position.x >= minX && position.x <= maxX && position.y >= minY && position.y <= maxY
+                        && position.z >= minZ && position.z <= maxZ) {
+                    expected.add(entity);
+                }
+            }
+            assertSameEntities(expected, out, found, "queryAabb");
+
+            int k = 1 + random.nextInt(12);
+            float maxRadius = 5f + random.nextFloat() * 40f;
+            found = grid.queryNearest(x, y, z, k, maxRadius, out);
+            expected.clear();
+            for (Entity entity : entities) {
+                if (distanceSquared(entity, x, y, z) <= maxRadius * maxRadius) {
+                    expected.add(entity);
+                }
+            }
+            expected.sort((a, b) -> Float.compare(distanceSquared(a, x, y, z), distanceSquared(b, x, y, z)));
+            int expectedCount = Math.min(k, expected.size());
+            assertEquals(expectedCount, found, "queryNearest count");
+            for (int i = 0; i < found; i++) {
+                assertEquals(distanceSquared(expected.get(i), x, y, z), distanceSquared(out[i], x, y, z), 0f,
+                        "queryNearest distance of result " + i);
+            }
+        }
+    }
+
+    private static void assertSameEntities(List<Entity> expected, Entity[] out, int found, String query) {
+        assertEquals(expected.size(), found, query + " count");
+        Map<Entity, Boolean> results = new IdentityHashMap<>();
+        for (int i = 0; i < found; i++) {
+            assertTrue(results.put(out[i], Boolean.TRUE) == null, query + " returned an entity twice");
+        }
+        for (Entity entity : expected) {
+            assertTrue(results.containsKey(entity), query + " missed " + entity.getId());
+        }
+    }
+
+    @Test
+    public void fullOutputArrayStopsTheQuery() {
+        EntityManager manager = new EntityManager();
+        for (int i = 0; i < 20; i++) {
+            manager.addEntity(new StillEntity("entity_" + i, -i * 0.5f, 0f, -i * 0.5f));
+        }
+        manager.update(0f);
+
+        Entity[] out = new Entity[5];
+        assertEquals(5, manager.getSpatialIndex().queryRadius(0f, 0f, 0f, 100f, out), "Results capped at out.length");
+        assertEquals(5, manager.getSpatialIndex().queryNearest(0f, 0f, 0f, 10, 100f, out), "k capped at out.length");
+        for (int i = 0; i < 5; i++) {
+            assertSame(manager.getEntity("entity_" + i), out[i], "Nearest result " + i);
+        }
+    }
+
+    private float coordinate() {
+        return (random.nextFloat() * 2f - 1f) * EXTENT;
+    }
+
+    private float distanceSquared(Entity entity, float x, float y, float z) {
+        entity.getPosition(position);
+        float dx = position.x - x;
+        float dy = position.y - y;
+        float dz = position.z - z;
+        return dx * dx + dy * dy + dz * dz;
+    }
+}
@@ -0,0 +1,80 @@
+package com.example.physics;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+
+import com.jme3.bullet.collision.shapes.SphereCollisionShape;
+import com.jme3.bullet.objects.PhysicsRigidBody;
+
+/**
+ * Checks that released handles stay dead once their slot is reused.
+ */
+public class BodyRegistryTest {
+
+    private static PhysicsRigidBody newBody() {
+        return new PhysicsRigidBody(new SphereCollisionShape(0.5f), 1f);
+    }
+
+    @Test
+    public void staleHandleIsRejectedAfterSlotReuse() {
+        BodyRegistry registry = new BodyRegistry();
+        PhysicsRigidBody first = newBody();
+        int stale = registry.register("crate", first, null);
+        assertTrue(registry.release(stale), "First release");
+        assertFalse(registry.release(stale), "Second release of the same handle");
+
+        PhysicsRigidBody second = newBody();
+        int fresh = registry.register("crate", second, null);
+        assertEquals(BodyRegistry.indexOf(stale), BodyRegistry.indexOf(fresh), "Released slot is reused");
+        assertTrue(stale != fresh, "Reused slot gets a new generation");
+
+        assertFalse(registry.isValid(stale), "Stale handle is invalid");
+        assertNull(registry.getBody(stale), "Stale handle addresses no body");
+        assertNull(registry.getId(stale), "Stale handle has no id");
+        assertEquals(0f, registry.getMass(stale), 0f, "Stale handle has no mass");
+        assertFalse(registry.release(stale), "Stale handle cannot release the new body");
+
+        assertTrue(registry.isValid(fresh), "New handle is valid");
+        assertSame(second, registry.getBody(fresh), "New handle addresses the new body");
+        assertEquals(fresh, registry.getHandle("crate"), "Id maps to the new handle");
+        assertEquals(fresh, registry.getHandle(second), "Body maps to the new handle");
+        assertEquals(BodyRegistry.INVALID_HANDLE, registry.getHandle(first), "Released body has no handle");
+    }
+
+    @Test
+    public void handlesStayInvalidAcrossManyReuses() {
+        BodyRegistry registry = new BodyRegistry();
+        int previous = registry.register(null, newBody(), null);
+        for (int i = 0; i < 5000; i++) {
+            assertTrue(registry.release(previous), "Release " + i);
+            int handle = registry.register(null, newBody(), null);
+            assertTrue(handle >= 0, "Handles stay positive when the generation wraps: " + handle);
+            assertFalse(registry.isValid(previous), "Previous handle is stale after reuse " + i);
+            previous = handle;
+        }
+        assertEquals(1, registry.size(), "One live body");
+    }
+
+    @Test
+    public void clearInvalidatesEveryHandle() {
+        BodyRegistry registry = new BodyRegistry();
+        int[] handles = new int[100];
+        for (int i = 0; i < handles.length; i++) {
+            handles[i] = registry.register("body_" + i, newBody(), null);
+        }
+        registry.clear();
+        assertEquals(0, registry.size(), "Registry is empty");
+
+        int reused = registry.register("body_0", newBody(), null);
+        for (int i = 0; i < handles.length; i++) {
+            assertFalse(registry.isValid(handles[i]), "Handle " + i + " after clear");
+        }
+        assertTrue(registry.isValid(reused), "Handle registered after clear");
+        assertEquals(reused, registry.getHandle("body_0"), "Id maps to the handle registered after clear");
+    }
+}
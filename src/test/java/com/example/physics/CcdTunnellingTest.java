@@ -0,0 +1,62 @@
+package com.example.physics;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+
+import com.jme3.bullet.collision.shapes.SphereCollisionShape;
+import com.jme3.bullet.objects.PhysicsRigidBody;
+import com.jme3.math.Vector3f;
+
+/**
+ * Fires a small, fast sphere down at a 1 m thick ground box. At 300 m/s it
+ * moves 5 m per 1/60 s step, so without CCD no step ever finds it inside the
+ * box.
+ */
+public class CcdTunnellingTest {
+
+    private static final float TIME_STEP = 1f / 60f;
+    private static final float RADIUS = 0.1f;
+    private static final float SPEED = 300f;
+
+    /**
+     * Run the shot with a profile and return the sphere's final height
+     */
+    private static float fire(PhysicsBodyProfile profile) {
+        PhysicsEngine engine = PhysicsEngine.createHeadless();
+        engine.configurePhysics();
+        try {
+            // Ground box from y = -1 to y = 0
+            engine.createBox("ground", new Vector3f(20f, 0.5f, 20f), 0f, new Vector3f(0f, -0.5f, 0f));
+
+            PhysicsRigidBody sphere = new PhysicsRigidBody(new SphereCollisionShape(RADIUS), 1f);
+            // Discrete steps put it at about 2.5 and -2.5, clear of the box both times
+            sphere.setPhysicsLocation(new Vector3f(0f, 12.5f, 0f));
+            profile.applyTo(sphere);
+            sphere.setLinearVelocity(new Vector3f(0f, -SPEED, 0f));
+            engine.registerBody("sphere", sphere, null);
+
+            for (int i = 0; i < 30; i++) {
+                engine.step(TIME_STEP);
+            }
+            return sphere.getPhysicsLocation().y;
+        } finally {
+            engine.cleanup();
+        }
+    }
+
+    @Test
+    public void projectileDoesNotTunnelThroughGround() {
+        float y = fire(PhysicsBodyProfile.PROJECTILE);
+        assertTrue(y > -0.5f, "Sphere with CCD ended below the ground surface at y = " + y);
+    }
+
+    @Test
+    public void defaultProfileHasNoCcd() {
+        assertTrue(!PhysicsBodyProfile.DEFAULT.isCcdEnabled(), "DEFAULT profile should not pay for CCD");
+
+        // Shows the shot is fast enough to tunnel, so the test above means something
+        float y = fire(PhysicsBodyProfile.DEFAULT);
+        assertTrue(y < -1f, "Sphere without CCD was expected to pass through the ground, ended at y = " + y);
+    }
+}
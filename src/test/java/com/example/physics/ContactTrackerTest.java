@@ -0,0 +1,109 @@
+package com.example.physics;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+
+import com.jme3.bullet.objects.PhysicsRigidBody;
+import com.jme3.math.Vector3f;
+
+/**
+ * Drops a box onto a static ground box in a headless world and follows the
+ * begin / persist / end events for the pair: one begin on landing, persists
+ * while it rests, no end once it sleeps, and one end after it is lifted
+ * away.
+ */
+public class ContactTrackerTest {
+
+    /**
+     * Counts events for one pair of bodies
+     */
+    private static final class CountingListener implements ContactTracker.ContactListener {
+
+        private final PhysicsRigidBody box;
+        private int begins;
+        private int persists;
+        private int ends;
+
+        CountingListener(PhysicsRigidBody box) {
+            this.box = box;
+        }
+
+        @Override
+        public void onContactBegin(PhysicsRigidBody bodyA, PhysicsRigidBody bodyB) {
+            if (bodyA == box || bodyB == box) {
+                begins++;
+            }
+        }
+
+        @Override
+        public void onContactPersist(PhysicsRigidBody bodyA, PhysicsRigidBody bodyB) {
+            if (bodyA == box || bodyB == box) {
+                persists++;
+            }
+        }
+
+        @Override
+        public void onContactEnd(PhysicsRigidBody bodyA, PhysicsRigidBody bodyB) {
+            if (bodyA == box || bodyB == box) {
+                ends++;
+            }
+        }
+    }
+
+    @Test
+    public void boxLandsSleepsAndIsLiftedAway() {
+        HeadlessPhysicsDriver driver = new HeadlessPhysicsDriver();
+        try {
+            PhysicsWorld world = driver.getPhysicsWorld();
+            PhysicsEngine engine = world.getPhysicsEngine();
+            // Sleep sooner than Bullet's 2 s so the test stays short
+            engine.setDeactivationTime(0.5f);
+
+            // Ground from y = -1 to y = 0, box resting on it once it lands
+            world.createBox("ground", null, new Vector3f(10f, 0.5f, 10f), 0f, new Vector3f(0f, -0.5f, 0f));
+            PhysicsRigidBody box = world.createBox("box", null, new Vector3f(0.5f, 0.5f, 0.5f), 1f,
+                    new Vector3f(0f, 1.5f, 0f));
+            int groundHandle = engine.getHandle("ground");
+            int boxHandle = engine.getHandle("box");
+
+            CountingListener listener = new CountingListener(box);
+            world.getCollisionListener().addContactListener(listener);
+            ContactTracker tracker = world.getCollisionListener().getContactTracker();
+
+            // Falls 0.5 m in about 0.32 s, then settles
+            driver.run(60);
+            assertEquals(1, listener.begins, "One begin when the box lands");
+            assertTrue(listener.persists > 0, "Persist events while it rests");
+            assertEquals(0, listener.ends, "No end while it rests");
+            assertTrue(tracker.isInContact(groundHandle, boxHandle), "Pair is in contact");
+
+            for (int i = 0; i < 600 && box.isActive(); i++) {
+                driver.step();
+            }
+            assertFalse(box.isActive(), "The box fell asleep");
+
+            // Bullet may stop reporting the contact once the island sleeps
+            driver.run(120);
+            assertFalse(box.isActive(), "The box is still asleep");
+            assertEquals(1, listener.begins, "No new begin while asleep");
+            assertEquals(0, listener.ends, "No end while both bodies sleep");
+            assertTrue(tracker.isInContact(groundHandle, boxHandle), "Pair is still in contact while asleep");
+
+            // Lift it far enough that it cannot land again within the run
+            box.setPhysicsLocation(new Vector3f(0f, 50f, 0f));
+            box.setLinearVelocity(Vector3f.ZERO);
+            box.activate();
+            driver.run(30);
+            assertEquals(1, listener.ends, "One end after the box is lifted away");
+            assertEquals(1, listener.begins, "No new begin after the lift");
+            assertFalse(tracker.isInContact(groundHandle, boxHandle), "Pair is no longer in contact");
+        } finally {
+            // The deactivation time is engine-wide, so restore it for other tests
+            driver.getPhysicsWorld().getPhysicsEngine().setDeactivationTime(PhysicsEngine.DEFAULT_DEACTIVATION_TIME);
+            driver.cleanup();
+        }
+    }
+}
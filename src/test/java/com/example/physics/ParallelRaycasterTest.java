@@ -0,0 +1,175 @@
+package com.example.physics;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+import org.junit.jupiter.api.Test;
+
+import com.jme3.bullet.PhysicsSpace;
+import com.jme3.bullet.PhysicsTickListener;
+import com.jme3.math.Vector3f;
+
+/**
+ * Casts the same random batch through ParallelRaycaster and a serial
+ * RaycastHelper on one headless world and expects identical results.
+ */
+public class ParallelRaycasterTest {
+
+    private static final int RAYS = 4000;
+    private static final float TIME_STEP = 1f / 60f;
+
+    /**
+     * Build a ground box with a grid of boxes, spheres and capsules on it,
+     * half of them static
+     */
+    private static PhysicsEngine createWorld() {
+        PhysicsEngine engine = PhysicsEngine.createHeadless();
+        engine.configurePhysics();
+        engine.setGravity(Vector3f.ZERO);
+        engine.createBox("ground", new Vector3f(50f, 0.5f, 50f), 0f, new Vector3f(0f, -0.5f, 0f));
+        for (int x = 0; x < 10; x++) {
+            for (int z = 0; z < 10; z++) {
+                String id = "body_" + x + "_" + z;
+                float mass = (x + z) % 2 == 0 ? 0f : 1f;
+                Vector3f position = new Vector3f(x * 8f - 36f, 1.5f, z * 8f - 36f);
+                switch ((x + z * 3) % 3) {
+                    case 0:
+                        engine.createBox(id, new Vector3f(1f, 1.5f, 1f), mass, position);
+                        break;
+                    case 1:
+                        engine.createSphere(id, 1.5f, mass, position);
+                        break;
+                    default:
+                        engine.createCapsule(id, 0.8f, 1.4f, mass, position);
+                        break;
+                }
+            }
+        }
+        // One step so every body has a broadphase AABB
+        engine.step(TIME_STEP);
+        return engine;
+    }
+
+    /**
+     * Random rays from above the grid down and across to below the ground
+     */
+    private static void randomRays(float[] origins, float[] ends) {
+        Random random = new Random(42);
+        for (int i = 0; i < RAYS * 3; i += 3) {
+            origins[i] = random.nextFloat() * 100f - 50f;
+            origins[i + 1] = 5f + random.nextFloat() * 10f;
+            origins[i + 2] = random.nextFloat() * 100f - 50f;
+            ends[i] = origins[i] + random.nextFloat() * 20f - 10f;
+            ends[i + 1] = -2f;
+            ends[i + 2] = origins[i + 2] + random.nextFloat() * 20f - 10f;
+        }
+    }
+
+    private static void assertSameAsSerial(PhysicsEngine engine, ParallelRaycaster raycaster) {
+        float[] origins = new float[RAYS * 3];
+        float[] ends = new float[RAYS * 3];
+        randomRays(origins, ends);
+
+        float[] serialFractions = new float[RAYS];
+        float[] serialPoints = new float[RAYS * 3];
+        float[] serialNormals = new float[RAYS * 3];
+        int[] serialHandles = new int[RAYS];
+        RaycastHelper helper = new RaycastHelper(engine.getPhysicsSpace(), engine.getBodyRegistry());
+        int serialHits = helper.raycastBatch(origins, ends, RAYS,
+                serialFractions, serialPoints, serialNormals, serialHandles);
+
+        float[] fractions = new float[RAYS];
+        float[] points = new float[RAYS * 3];
+        float[] normals = new float[RAYS * 3];
+        int[] handles = new int[RAYS];
+        int hits = raycaster.raycastBatch(origins, ends, RAYS, fractions, points, normals, handles);
+
+        assertTrue(serialHits > RAYS / 2, "Most rays should reach the ground: " + serialHits);
+        assertEquals(serialHits, hits, "Hit count");
+        assertArrayEquals(serialFractions, fractions, "Hit fractions");
+        assertArrayEquals(serialPoints, points, "Hit points");
+        assertArrayEquals(serialNormals, normals, "Hit normals");
+        assertArrayEquals(serialHandles, handles, "Hit handles");
+    }
+
+    @Test
+    public void parallelBatchMatchesSerialBatch() {
+        PhysicsEngine engine = createWorld();
+        ForkJoinPool pool = new ForkJoinPool(4);
+        try {
+            ParallelRaycaster raycaster = new ParallelRaycaster(engine, pool);
+            assertFalse(raycaster.hasConcaveShapes(), "Only convex shapes in the world");
+            assertSameAsSerial(engine, raycaster);
+        } finally {
+            pool.shutdown();
+            engine.cleanup();
+        }
+    }
+
+    @Test
+    public void heightfieldForcesSerialBatches() {
+        PhysicsEngine engine = createWorld();
+        ForkJoinPool pool = new ForkJoinPool(4);
+        try {
+            ParallelRaycaster raycaster = new ParallelRaycaster(engine, pool);
+            assertFalse(raycaster.hasConcaveShapes(), "Only convex shapes in the world");
+
+            float[] heightmap = new float[33 * 33];
+            for (int i = 0; i < heightmap.length; i++) {
+                heightmap[i] = (i % 7) * 0.1f;
+            }
+            engine.createBody("terrain", PhysicsShapeFactory.createHeightfield(heightmap, new Vector3f(1f, 1f, 1f)),
+                    0f, new Vector3f(60f, 0f, 0f));
+            engine.step(TIME_STEP);
+
+            assertTrue(raycaster.hasConcaveShapes(), "A heightfield was added");
+            assertSameAsSerial(engine, raycaster);
+        } finally {
+            pool.shutdown();
+            engine.cleanup();
+        }
+    }
+
+    @Test
+    public void batchesAreRejectedDuringAStep() {
+        PhysicsEngine engine = createWorld();
+        ForkJoinPool pool = new ForkJoinPool(4);
+        try {
+            ParallelRaycaster raycaster = new ParallelRaycaster(engine, pool);
+            float[] origins = new float[RAYS * 3];
+            float[] ends = new float[RAYS * 3];
+            float[] fractions = new float[RAYS];
+            randomRays(origins, ends);
+
+            boolean[] rejected = new boolean[1];
+            engine.getPhysicsSpace().addTickListener(new PhysicsTickListener() {
+                @Override
+                public void prePhysicsTick(PhysicsSpace space, float timeStep) {
+                    try {
+                        raycaster.raycastBatch(origins, ends, RAYS, fractions, null, null, null);
+                    } catch (IllegalStateException e) {
+                        rejected[0] = true;
+                    }
+                }
+
+                @Override
+                public void physicsTick(PhysicsSpace space, float timeStep) {
+                }
+            });
+            engine.step(TIME_STEP);
+
+            assertTrue(rejected[0], "A batch cast from inside a step should be rejected");
+            assertFalse(engine.isStepping(), "The step has finished");
+            assertTrue(raycaster.raycastBatch(origins, ends, RAYS, fractions, null, null, null) > 0,
+                    "Batches work again after the step");
+        } finally {
+            pool.shutdown();
+            engine.cleanup();
+        }
+    }
+}
@@ -0,0 +1,110 @@
+package com.example.util;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Checks LongIntMap against a HashMap, with the removals that exercise
+ * backward-shift deletion.
+ */
+public class LongIntMapTest {
+
+    private static final int MISSING = -1;
+
+    @Test
+    public void randomOperationsMatchHashMap() {
+        Random random = new Random(3);
+        LongIntMap map = new LongIntMap(16);
+        Map<Long, Integer> expected = new HashMap<>();
+        List<Long> keys = new ArrayList<>();
+
+        for (int op = 0; op < 200_000; op++) {
+            long key;
+            if (!keys.isEmpty() && random.nextInt(3) > 0) {
+                key = keys.get(random.nextInt(keys.size()));
+            } else {
+                // Narrow range so keys collide and share probe chains
+                key = random.nextInt(4096) - 2048L;
+                keys.add(key);
+            }
+            if (random.nextInt(5) < 2) {
+                Integer removed = expected.remove(key);
+                assertEquals(removed != null ? removed : MISSING, map.remove(key, MISSING), "remove(" + key + ")");
+            } else {
+                int value = random.nextInt(1_000_000);
+                expected.put(key, value);
+                map.put(key, value);
+            }
+            assertEquals(expected.size(), map.size(), "size after op " + op);
+        }
+
+        for (long key = -2048; key < 2048; key++) {
+            Integer value = expected.get(key);
+            assertEquals(value != null ? value : MISSING, map.get(key, MISSING), "get(" + key + ")");
+            assertEquals(value != null, map.containsKey(key), "containsKey(" + key + ")");
+        }
+    }
+
+    @Test
+    public void removingFromAProbeChainKeepsTheRestReachable() {
+        LongIntMap map = new LongIntMap(64);
+        int capacity = map.capacity();
+
+        // At half load probe chains form; remove each key in turn from a
+        // fresh fill and check that every other key survives the shift
+        List<Long> keys = new ArrayList<>();
+        for (long key = 0; keys.size() < capacity / 2; key++) {
+            keys.add(key * 0x10001L);
+        }
+        for (int removedIndex = 0; removedIndex < keys.size(); removedIndex++) {
+            map.clear();
+            for (int i = 0; i < keys.size(); i++) {
+                map.put(keys.get(i), i);
+            }
+            assertEquals(capacity, map.capacity(), "No resize at half load");
+
+            assertEquals(removedIndex, map.remove(keys.get(removedIndex), MISSING), "Removed value");
+            assertEquals(MISSING, map.remove(keys.get(removedIndex), MISSING), "Second remove");
+            assertFalse(map.containsKey(keys.get(removedIndex)), "Removed key is gone");
+            for (int i = 0; i < keys.size(); i++) {
+                if (i != removedIndex) {
+                    assertEquals(i, map.get(keys.get(i), MISSING), "Key " + keys.get(i) + " after removing " + removedIndex);
+                }
+            }
+            assertEquals(keys.size() - 1, map.size(), "size");
+        }
+    }
+
+    @Test
+    public void emptiedMapCanBeRefilled() {
+        LongIntMap map = new LongIntMap();
+        for (long key = -100; key < 100; key++) {
+            map.put(key, (int) key);
+        }
+        for (long key = -100; key < 100; key++) {
+            assertEquals((int) key, map.remove(key, MISSING), "remove(" + key + ")");
+        }
+        assertTrue(map.isEmpty(), "All keys removed");
+        int occupied = 0;
+        for (int slot = 0; slot < map.capacity(); slot++) {
+            if (map.isOccupied(slot)) {
+                occupied++;
+            }
+        }
+        assertEquals(0, occupied, "Occupied slots after removing everything");
+
+        map.put(Long.MAX_VALUE, 1);
+        map.put(Long.MIN_VALUE + 1, 2);
+        assertEquals(1, map.get(Long.MAX_VALUE, MISSING), "Largest key");
+        assertEquals(2, map.get(Long.MIN_VALUE + 1, MISSING), "Smallest usable key");
+    }
+}